@@ -1,5 +1,6 @@
 plugins {
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.auriosi"
@@ -11,4 +12,13 @@ repositories {
 
 dependencies {
     implementation("net.minestom:minestom-snapshots:0d47d97417")
-}
\ No newline at end of file
+}
+
+// Run with ./gradlew jmh, results are written to build/results/jmh
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+}
@@ -0,0 +1,186 @@
+import net.kyori.adventure.text.Component;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.entity.PlayerHand;
+import net.minestom.server.event.EventDispatcher;
+import net.minestom.server.event.player.PlayerSpawnEvent;
+import net.minestom.server.instance.InstanceContainer;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.network.ConnectionState;
+import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import net.minestom.server.network.packet.server.CachedPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
+import net.minestom.server.network.player.PlayerConnection;
+import org.auriosi.aurinpc.benchmark.NPCFixture;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * The {@link NPCFixture} of the benchmarks. It sits in the default package, next to AuriNPC, so it can reach
+ * the package-private tick methods. The internals it drives directly, the look-at engine and the player info
+ * entries, are read from their private fields once during setup rather than exposed by AuriNPC.
+ */
+public final class JmhFixture implements NPCFixture {
+    private static final int SPREAD = 64;
+    private static final int GROUND = 40;
+    private static final int MOVES = 64;
+    private static boolean serverStarted;
+
+    private final Random random = new Random(42);
+    private final List<Player> players = new ArrayList<>();
+    private final List<StaticNPC> npcs = new ArrayList<>();
+    private final List<NPCPlayerInfo> playerInfos = new ArrayList<>();
+    // Positions each player walks through in turn, so moving one costs no random numbers
+    private Pos[][] moves;
+    private int move;
+    private InstanceContainer instance;
+    private InstanceNPCs instanceNPCs;
+    private LookAtEngine lookAt;
+    private LivingStaticNPC living;
+    private ClientInteractEntityPacket interaction;
+    private int cursor;
+
+    public JmhFixture() {
+    }
+
+    @Override
+    public void setUp(int playerCount, int npcCount) {
+        startServer();
+        instance = MinecraftServer.getInstanceManager().createInstanceContainer();
+        instance.setGenerator(unit -> unit.modifier().fillHeight(0, GROUND, Block.STONE));
+        for (int chunkX = -SPREAD / 32; chunkX < SPREAD / 32; chunkX++) {
+            for (int chunkZ = -SPREAD / 32; chunkZ < SPREAD / 32; chunkZ++) {
+                instance.loadChunk(chunkX, chunkZ).join();
+            }
+        }
+        for (int i = 0; i < npcCount; i++) {
+            npcs.add(new StaticNPC.Builder(UUID.randomUUID(), instance, randomPosition())
+                .customName(Component.text("NPC " + i))
+                .lookAtPlayers(true)
+                .build());
+        }
+        living = new LivingStaticNPC.Builder(UUID.randomUUID(), instance, new Pos(0.5, GROUND, 0.5), 20)
+            .respawns(true)
+            .respawnDelay(0)
+            .onInteract(packet -> {})
+            .build();
+        for (int i = 0; i < playerCount; i++) {
+            Player player = new Player(UUID.randomUUID(), "bench" + i, new NullConnection());
+            player.setInstance(instance, randomPosition()).join();
+            players.add(player);
+        }
+        instanceNPCs = AuriNPC.getInstance().getNPCs().getInstanceNPCs(instance);
+        lookAt = (LookAtEngine) read(InstanceNPCs.class, "lookAt", instanceNPCs);
+        for (StaticNPC npc : npcs) {
+            playerInfos.add((NPCPlayerInfo) read(StaticNPC.class, "playerInfo", npc));
+        }
+        moves = new Pos[players.size()][MOVES];
+        for (int i = 0; i < players.size(); i++) {
+            Pos start = players.get(i).getPosition();
+            for (int j = 0; j < MOVES; j++) {
+                double angle = 2 * Math.PI * j / MOVES;
+                moves[i][j] = start.add(Math.cos(angle), 0, Math.sin(angle));
+            }
+        }
+        // Settles which NPCs are awake, as the look-at pass skips dormant ones
+        instanceNPCs.tick();
+        interaction = new ClientInteractEntityPacket(living.getEntityId(),
+            new ClientInteractEntityPacket.Interact(PlayerHand.MAIN), false);
+    }
+
+    @Override
+    public void tearDown() {
+        players.forEach(Player::remove);
+        players.clear();
+        npcs.forEach(StaticNPC::remove);
+        npcs.clear();
+        playerInfos.clear();
+        living.remove();
+        MinecraftServer.getInstanceManager().unregisterInstance(instance);
+    }
+
+    @Override
+    public void joinFanOut() {
+        EventDispatcher.call(new PlayerSpawnEvent(nextPlayer(), instance, true));
+    }
+
+    @Override
+    public void movePlayer() {
+        int player = cursor++ % players.size();
+        players.get(player).teleport(moves[player][move++ % MOVES]).join();
+    }
+
+    @Override
+    public void lookAtTick() {
+        lookAt.tick();
+    }
+
+    @Override
+    public Object encodeInfoPacket() {
+        NPCPlayerInfo playerInfo = playerInfos.get(cursor++ % playerInfos.size());
+        playerInfo.rebuild();
+        return ((CachedPacket) playerInfo.getCachedPacket()).body(ConnectionState.PLAY);
+    }
+
+    @Override
+    public boolean interact() {
+        return AuriNPC.getInstance().getInteractDispatcher().dispatch(interaction);
+    }
+
+    @Override
+    public void killAndRespawn() {
+        living.kill();
+        // A respawn delay of zero hands the revive to the NPC's scheduler on the next timer tick
+        instanceNPCs.getTimers().tick();
+        living.scheduler().processTick();
+    }
+
+    private Player nextPlayer() {
+        return players.get(cursor++ % players.size());
+    }
+
+    private Pos randomPosition() {
+        return new Pos(random.nextDouble() * SPREAD - SPREAD / 2.0, GROUND, random.nextDouble() * SPREAD - SPREAD / 2.0);
+    }
+
+    private static Object read(Class<?> type, String name, Object target) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.get(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read " + type.getSimpleName() + "." + name, e);
+        }
+    }
+
+    private static synchronized void startServer() {
+        if (serverStarted) {
+            return;
+        }
+        // Initialized but never bound, so nothing but the benchmarks drives the server
+        MinecraftServer.init();
+        AuriNPC.init();
+        serverStarted = true;
+    }
+
+    private static final class NullConnection extends PlayerConnection {
+        private static final SocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 0);
+
+        @Override
+        public void sendPacket(@NotNull SendablePacket packet) {
+        }
+
+        @Override
+        public @NotNull SocketAddress getRemoteAddress() {
+            return ADDRESS;
+        }
+    }
+}
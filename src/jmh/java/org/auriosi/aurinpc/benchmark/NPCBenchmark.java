@@ -0,0 +1,95 @@
+package org.auriosi.aurinpc.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the hot paths of AuriNPC on one fixture per trial. Every benchmark runs for every combination of
+ * the parameters; narrow them with JMH's {@code -p}, such as {@code -p npcs=10000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NPCBenchmark {
+    @Param({"1", "20", "100"})
+    public int players;
+    @Param({"100", "1000", "10000"})
+    public int npcs;
+
+    private NPCFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = NPCFixture.create();
+        fixture.setUp(players, npcs);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.tearDown();
+    }
+
+    /**
+     * Sending every NPC of an instance to a player that joins it.
+     */
+    @Benchmark
+    public void joinFanOut() {
+        fixture.joinFanOut();
+    }
+
+    /**
+     * Moving one player to the next of its precomputed positions, the baseline of {@link #lookAtTick()}.
+     */
+    @Benchmark
+    public void movePlayer() {
+        fixture.movePlayer();
+    }
+
+    /**
+     * A tick of the look-at pass of an instance, after one player moved. Subtract {@link #movePlayer()} for
+     * the pass alone.
+     */
+    @Benchmark
+    public void lookAtTick() {
+        fixture.movePlayer();
+        fixture.lookAtTick();
+    }
+
+    /**
+     * Rebuilding and encoding the player info packet of an NPC.
+     * @return The encoded packet
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object encodeInfoPacket() {
+        return fixture.encodeInfoPacket();
+    }
+
+    /**
+     * Looking up and running the interaction handler of an NPC.
+     * @return Whether a handler was found
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean interact() {
+        return fixture.interact();
+    }
+
+    /**
+     * Killing a living NPC and respawning it on the next timer tick.
+     */
+    @Benchmark
+    public void killAndRespawn() {
+        fixture.killAndRespawn();
+    }
+}
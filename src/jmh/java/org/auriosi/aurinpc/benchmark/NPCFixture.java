@@ -0,0 +1,67 @@
+package org.auriosi.aurinpc.benchmark;
+
+/**
+ * A headless, in-process Minestom server with NPCs and fake players to benchmark AuriNPC on.
+ * <p>
+ * AuriNPC lives in the default package, which classes in a package cannot refer to, while JMH refuses
+ * benchmarks in the default package. The benchmarks therefore go through this interface, implemented by
+ * {@code JmhFixture} in the default package and loaded once per trial, so measured calls are plain
+ * interface calls.
+ */
+public interface NPCFixture {
+    /**
+     * Creates an instance with static NPCs spread around the origin and fake players among them.
+     * @param players The number of players
+     * @param npcs The number of NPCs
+     */
+    void setUp(int players, int npcs);
+
+    /**
+     * Removes the NPCs, the players and the instance.
+     */
+    void tearDown();
+
+    /**
+     * Runs the player spawn fan-out of AuriNPC for one of the players, as if they just joined.
+     */
+    void joinFanOut();
+
+    /**
+     * Moves one of the players to the next of the positions picked for it during setup.
+     */
+    void movePlayer();
+
+    /**
+     * Runs the look-at pass of the instance.
+     */
+    void lookAtTick();
+
+    /**
+     * Rebuilds the player info packet of one NPC, without sending it, and encodes it.
+     * @return The encoded packet
+     */
+    Object encodeInfoPacket();
+
+    /**
+     * Dispatches an interaction with an NPC to its handler.
+     * @return Whether a handler was found
+     */
+    boolean interact();
+
+    /**
+     * Kills a living NPC and runs its instance's timers until it respawned.
+     */
+    void killAndRespawn();
+
+    /**
+     * Loads the fixture.
+     * @return A new fixture
+     */
+    static NPCFixture create() {
+        try {
+            return (NPCFixture) Class.forName("JmhFixture").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("JmhFixture is missing from the jmh source set", e);
+        }
+    }
+}
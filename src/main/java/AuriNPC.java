@@ -1,39 +1,146 @@
 import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.Player;
+import net.minestom.server.event.instance.InstanceUnregisterEvent;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import net.minestom.server.timer.Schedulable;
+import net.minestom.server.timer.Scheduler;
+import net.minestom.server.timer.Task;
+import net.minestom.server.timer.TaskSchedule;
 import net.minestom.server.event.Event;
 import net.minestom.server.event.EventFilter;
 import net.minestom.server.event.EventNode;
+import net.minestom.server.event.player.PlayerBlockBreakEvent;
+import net.minestom.server.event.player.PlayerBlockPlaceEvent;
+import net.minestom.server.event.player.PlayerDisconnectEvent;
+import net.minestom.server.event.player.PlayerMoveEvent;
+import net.minestom.server.event.player.PlayerPacketEvent;
 import net.minestom.server.event.player.PlayerSpawnEvent;
+import net.minestom.server.event.trait.InstanceEvent;
 import net.minestom.server.event.trait.PlayerEvent;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 public class AuriNPC {
     private static AuriNPC INSTANCE = null;
 
     private final EventNode<PlayerEvent> playerEventNode;
-    private final ArrayList<NPC> npcs = new ArrayList<>();
+    private final EventNode<InstanceEvent> instanceEventNode;
+    private final NPCTickGroups tickGroups;
+    private final NPCRegistry npcs;
+    private final InteractDispatcher interactDispatcher = new InteractDispatcher();
+    private final PlayerInfoTracker playerInfoTracker = new PlayerInfoTracker();
+    private final SkinRegistry skinRegistry = new SkinRegistry();
+    private final SkinResolver skinResolver = new SkinResolver(skinRegistry);
+    private final ProximitySettings proximitySettings = new ProximitySettings();
+    private final PathfindingService pathfinding =
+        new PathfindingService(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1024);
+    private final FlowFieldService flowFields = new FlowFieldService(pathfinding);
+    private final RouteService routes = new RouteService();
+    private final ThreadLocal<List<NPC>> deferredShows = new ThreadLocal<>();
+    private final List<Task> tasks = new ArrayList<>();
 
-    private AuriNPC() {
+    private AuriNPC(int tickThreads) {
+        tickGroups = new NPCTickGroups(tickThreads);
+        npcs = new NPCRegistry(tickGroups);
         playerEventNode = EventNode.type("aurinpc-player-events", EventFilter.PLAYER);
         playerEventNode.addListener(PlayerSpawnEvent.class, event -> {
             Player player = event.getPlayer();
-            npcs.forEach(npc -> {
-                if (npc.getInstance() != player.getInstance()) {
-                    return;
-                }
-                player.sendPacket(npc.getPlayerInfoUpdatePacket());
-                npc.addViewer(player);
-            });
+            npcs.forgetPlayer(player);
+            InstanceNPCs instanceNPCs = npcs.getInstanceNPCs(player.getInstance());
+            if (instanceNPCs == null) {
+                return;
+            }
+            // Send every entry at once, so adding the player as a viewer does not send them one by one
+            PlayerInfoBatch playerInfo = instanceNPCs.getPlayerInfo();
+            playerInfoTracker.send(player, playerInfo);
+            instanceNPCs.getProximity().refreshView(player, player.getPosition());
+            instanceNPCs.getProximity().wake(player.getPosition());
+        });
+        playerEventNode.addListener(PlayerMoveEvent.class, event -> {
+            Player player = event.getPlayer();
+            Pos newPosition = event.getNewPosition();
+            if (InstanceNPCs.chunkIndex(player.getPosition()) == InstanceNPCs.chunkIndex(newPosition)) {
+                return;
+            }
+            InstanceNPCs instanceNPCs = npcs.getInstanceNPCs(player.getInstance());
+            if (instanceNPCs != null) {
+                instanceNPCs.getProximity().refreshView(player, newPosition);
+                instanceNPCs.getProximity().wake(newPosition);
+            }
+        });
+        playerEventNode.addListener(PlayerDisconnectEvent.class, event -> {
+            npcs.forgetPlayer(event.getPlayer());
+            playerInfoTracker.forget(event.getPlayer());
+        });
+        playerEventNode.addListener(PlayerBlockBreakEvent.class, event -> invalidatePaths(event.getInstance(), event.getBlockPosition()));
+        playerEventNode.addListener(PlayerBlockPlaceEvent.class, event -> invalidatePaths(event.getInstance(), event.getBlockPosition()));
+        playerEventNode.addListener(PlayerPacketEvent.class, event -> {
+            if (event.getPacket() instanceof ClientInteractEntityPacket packet) {
+                interactDispatcher.dispatch(packet);
+            }
         });
         MinecraftServer.getGlobalEventHandler().addChild(playerEventNode);
+
+        instanceEventNode = EventNode.type("aurinpc-instance-events", EventFilter.INSTANCE);
+        instanceEventNode.addListener(InstanceUnregisterEvent.class, event -> {
+            npcs.removeInstance(event.getInstance());
+            flowFields.removeInstance(event.getInstance());
+            routes.removeInstance(event.getInstance());
+        });
+        MinecraftServer.getGlobalEventHandler().addChild(instanceEventNode);
+
+        tasks.add(MinecraftServer.getSchedulerManager().scheduleTask(playerInfoTracker::tick, TaskSchedule.immediate(), TaskSchedule.tick(1)));
+        // Runs on the main thread before Minestom ticks the instances, and blocks it until every NPC tick group
+        // is done, so NPCs are updated before the entities and chunks of their instances each tick
+        tasks.add(MinecraftServer.getSchedulerManager().scheduleTask(() -> tickGroups.tick(System.currentTimeMillis()), TaskSchedule.immediate(), TaskSchedule.tick(1)));
+        tasks.add(MinecraftServer.getSchedulerManager().scheduleTask(flowFields::evictIdle, TaskSchedule.seconds(5), TaskSchedule.seconds(5)));
+        MinecraftServer.getSchedulerManager().buildShutdownTask(AuriNPC::shutdown);
+    }
+
+    private void stop() {
+        tasks.forEach(Task::cancel);
+        MinecraftServer.getGlobalEventHandler().removeChild(playerEventNode);
+        MinecraftServer.getGlobalEventHandler().removeChild(instanceEventNode);
+        tickGroups.shutdown();
+        pathfinding.shutdown();
+        skinResolver.shutdown();
     }
 
     /**
-     * Initializes the AuriNPC library.
+     * Initializes the AuriNPC library, spreading the NPC tick groups of instances over half the available cores.
      */
     public static void init() {
-        INSTANCE = new AuriNPC();
+        init(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Initializes the AuriNPC library.
+     *
+     * @param tickThreads the number of threads the NPC tick groups of instances are spread over
+     */
+    public static void init(int tickThreads) {
+        INSTANCE = new AuriNPC(tickThreads);
+    }
+
+    /**
+     * Shuts the AuriNPC library down, stopping its tasks, listeners and threads. Called on its own when the
+     * server stops; after it, {@link #init()} may be called again.
+     */
+    public static void shutdown() {
+        AuriNPC instance = INSTANCE;
+        if (instance == null) {
+            return;
+        }
+        INSTANCE = null;
+        instance.stop();
     }
 
     /**
@@ -46,35 +153,222 @@ public class AuriNPC {
     }
 
     /**
-     * Adds an NPC to the tracker, making it visible to players in the same instance.
+     * Adds an NPC to the tracker, making it visible to players within the view radius in the same instance.
+     * Safe to call from any thread.
      *
      * @param npc the NPC to add
      */
     public void addNPC(NPC npc) {
-        npcs.add(npc);
-        npc.getInstance().getPlayers().forEach(npc::addViewer);
+        Instance previous = npcs.add(npc);
+        if (previous != null) {
+            previous.getPlayers().forEach(npc::removeViewer);
+            playerInfoTracker.removeEverywhere(npc);
+        }
+        InstanceNPCs instanceNPCs = npcs.getInstanceNPCs(npc.getInstance());
+        if (instanceNPCs == null) {
+            return;
+        }
+        List<NPC> deferred = deferredShows.get();
+        if (deferred != null) {
+            deferred.add(npc);
+        } else {
+            instanceNPCs.getProximity().show(npc);
+        }
+    }
+
+    /**
+     * Runs a batch of spawns, then shows all the NPCs it added at once, instance by instance, so each viewer
+     * gets their player info entries in as few packets as possible. Only NPCs added while the spawns run are
+     * part of the batch, so the chunks they spawn in must be loaded beforehand; an NPC whose chunk is still
+     * loading is added, and shown on its own, once the chunk is loaded.
+     *
+     * @param spawns the spawns
+     */
+    void spawnBatch(Runnable spawns) {
+        List<NPC> added = new ArrayList<>();
+        deferredShows.set(added);
+        try {
+            spawns.run();
+        } finally {
+            deferredShows.remove();
+            Map<InstanceNPCs, List<NPC>> byInstance = new HashMap<>();
+            for (NPC npc : added) {
+                InstanceNPCs instanceNPCs = npcs.getInstanceNPCs(npc.getInstance());
+                if (instanceNPCs != null) {
+                    byInstance.computeIfAbsent(instanceNPCs, key -> new ArrayList<>()).add(npc);
+                }
+            }
+            byInstance.forEach((instanceNPCs, shown) -> instanceNPCs.getProximity().show(shown));
+        }
+    }
+
+    /**
+     * Spawns NPCs over as many ticks as needed to stay within the default budget of 256 NPCs and 5
+     * milliseconds per tick.
+     *
+     * @param definitions the NPCs to spawn
+     * @param instances resolves the instance keys of the definitions to instances
+     * @return the progress of the spawn
+     * @see #spawnAll(Iterable, Function, int, Duration)
+     */
+    public BulkSpawn spawnAll(Iterable<NPCDefinition> definitions, Function<String, Instance> instances) {
+        return spawnAll(definitions, instances, 256, Duration.ofMillis(5));
+    }
+
+    /**
+     * Spawns NPCs over as many ticks as needed to stay within a budget per tick, starting with the NPCs
+     * closest to a player in their instance. The NPCs spawned on the same tick are shown together, so their
+     * viewers get coalesced player info packets. Safe to call from any thread.
+     *
+     * @param definitions the NPCs to spawn
+     * @param instances resolves the instance keys of the definitions to instances
+     * @param maxPerTick the number of NPCs spawned per tick at most
+     * @param maxTimePerTick the time spent spawning per tick at most, after at least one NPC was spawned
+     * @return the progress of the spawn
+     */
+    public BulkSpawn spawnAll(Iterable<NPCDefinition> definitions, Function<String, Instance> instances,
+                              int maxPerTick, Duration maxTimePerTick) {
+        BulkSpawn spawn = new BulkSpawn(definitions, instances, maxPerTick, maxTimePerTick);
+        MinecraftServer.getSchedulerManager().submitTask(spawn::tick);
+        return spawn;
     }
 
     /**
      * Removes an NPC from the tracker, making it invisible to players.
+     * Safe to call from any thread.
      *
      * @param npc the NPC to remove
      */
     public void removeNPC(NPC npc) {
-        npcs.remove(npc);
-        npc.getInstance().getPlayers().forEach(npc::removeViewer);
+        Instance instance = npcs.remove(npc);
+        if (instance != null) {
+            instance.getPlayers().forEach(npc::removeViewer);
+            playerInfoTracker.removeEverywhere(npc);
+        }
+    }
+
+    /**
+     * Schedules a delayed action for an NPC. The tick group of the instance the NPC is in counts the delay
+     * down, then the action runs on the tick of the NPC itself, or of its instance for NPCs that are not
+     * entities, so it may change the NPC. Safe to call from any thread.
+     *
+     * @param npc the NPC the action is for
+     * @param task the action
+     * @param delayTicks the number of ticks to wait, at least one
+     * @return the timer, which can be cancelled
+     */
+    public TimerWheel.Timer schedule(NPC npc, Runnable task, long delayTicks) {
+        Scheduler scheduler = npc instanceof Schedulable schedulable ? schedulable.scheduler() : npc.getInstance().scheduler();
+        return npcs.getOrCreateInstanceNPCs(npc.getInstance()).getTimers().schedule(task, delayTicks, scheduler);
+    }
+
+    /**
+     * Gets the tick groups that run the per-tick work of each instance's NPCs in parallel.
+     *
+     * @return the tick groups
+     */
+    public NPCTickGroups getTickGroups() {
+        return tickGroups;
     }
 
     /**
-     * Gets all NPCs currently being tracked.
+     * Gets all NPCs currently being tracked, indexed by instance and chunk.
      *
      * @return all NPCs currently being tracked
      */
-    public ArrayList<NPC> getNPCs() {
+    public NPCRegistry getNPCs() {
         return npcs;
     }
 
+    /**
+     * Gets the dispatcher that routes interactions to NPCs.
+     *
+     * @return the interact dispatcher
+     */
+    public InteractDispatcher getInteractDispatcher() {
+        return interactDispatcher;
+    }
+
+    /**
+     * Gets the tracker of which NPC player info entries each player holds.
+     *
+     * @return the player info tracker
+     */
+    public PlayerInfoTracker getPlayerInfoTracker() {
+        return playerInfoTracker;
+    }
+
+    /**
+     * Gets the settings for how NPCs react to the distance to players.
+     *
+     * @return the proximity settings
+     */
+    public ProximitySettings getProximitySettings() {
+        return proximitySettings;
+    }
+
+    /**
+     * Gets the service that searches paths for navigational NPCs.
+     *
+     * @return the pathfinding service
+     */
+    public PathfindingService getPathfinding() {
+        return pathfinding;
+    }
+
+    /**
+     * Gets the service that shares flow fields between navigational NPCs walking to the same goal.
+     *
+     * @return the flow field service
+     */
+    public FlowFieldService getFlowFields() {
+        return flowFields;
+    }
+
+    /**
+     * Gets the service that keeps the routes navigational NPCs patrol.
+     *
+     * @return the route service
+     */
+    public RouteService getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Marks the flow fields and route legs passing by a block as out of date. Block changes made by players
+     * are picked up on their own; call this for blocks changed by other means.
+     *
+     * @param instance the instance of the block
+     * @param block the position of the block
+     */
+    public void invalidatePaths(Instance instance, Point block) {
+        flowFields.invalidate(instance, block);
+        routes.invalidate(instance, block);
+    }
+
+    /**
+     * Gets the registry that shares skins between NPCs.
+     *
+     * @return the skin registry
+     */
+    public SkinRegistry getSkinRegistry() {
+        return skinRegistry;
+    }
+
+    /**
+     * Gets the resolver that looks up skins by reference in the background.
+     *
+     * @return the skin resolver
+     */
+    public SkinResolver getSkinResolver() {
+        return skinResolver;
+    }
+
     public EventNode<PlayerEvent> getPlayerEventNode() {
         return playerEventNode;
     }
+
+    public EventNode<InstanceEvent> getInstanceEventNode() {
+        return instanceEventNode;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.timer.TaskSchedule;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * The progress of NPCs being spawned over several ticks by {@link AuriNPC#spawnAll(Iterable, Function, int, Duration)}.
+ */
+public final class BulkSpawn {
+    private final NPCDefinition[] definitions;
+    private final Instance[] instances;
+    private final int maxPerTick;
+    private final long maxNanosPerTick;
+    private final List<NPC> spawned;
+    private final CompletableFuture<List<NPC>> future = new CompletableFuture<>();
+    private volatile int next;
+    private CompletableFuture<Void> loading;
+
+    BulkSpawn(@NotNull Iterable<NPCDefinition> definitions, @NotNull Function<String, Instance> instances,
+              int maxPerTick, @NotNull Duration maxTimePerTick) {
+        List<NPCDefinition> list = new ArrayList<>();
+        definitions.forEach(list::add);
+        Map<String, Instance> resolved = new HashMap<>();
+        for (NPCDefinition definition : list) {
+            if (resolved.get(definition.instance) == null) {
+                Instance instance = instances.apply(definition.instance);
+                if (instance == null) {
+                    throw new IllegalArgumentException("Unknown instance " + definition.instance);
+                }
+                resolved.put(definition.instance, instance);
+            }
+        }
+        // Nearest viewer first, so players see the NPCs around them before the ones out of sight
+        Map<NPCDefinition, Double> distances = new HashMap<>();
+        for (NPCDefinition definition : list) {
+            double closest = Double.MAX_VALUE;
+            for (Player player : resolved.get(definition.instance).getPlayers()) {
+                closest = Math.min(closest, player.getPosition().distanceSquared(definition.position));
+            }
+            distances.put(definition, closest);
+        }
+        list.sort(Comparator.comparingDouble(distances::get));
+        this.definitions = list.toArray(NPCDefinition[]::new);
+        this.instances = Arrays.stream(this.definitions)
+            .map(definition -> resolved.get(definition.instance))
+            .toArray(Instance[]::new);
+        this.maxPerTick = Math.max(1, maxPerTick);
+        this.maxNanosPerTick = maxTimePerTick.toNanos();
+        this.spawned = new ArrayList<>(this.definitions.length);
+    }
+
+    TaskSchedule tick() {
+        if (future.isDone()) {
+            return TaskSchedule.stop();
+        }
+        try {
+            if (!loadChunks()) {
+                return TaskSchedule.nextTick();
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            MinecraftServer.getExceptionManager().handleException(e);
+            return TaskSchedule.stop();
+        }
+        long start = System.nanoTime();
+        try {
+            AuriNPC.getInstance().spawnBatch(() -> {
+                int count = 0;
+                while (next < definitions.length && count < maxPerTick
+                    && (count == 0 || System.nanoTime() - start < maxNanosPerTick)) {
+                    int index = next;
+                    NPC npc = definitions[index].build(instances[index]);
+                    synchronized (spawned) {
+                        spawned.add(npc);
+                    }
+                    definitions[index] = null;
+                    instances[index] = null;
+                    next = index + 1;
+                    count++;
+                }
+            });
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            MinecraftServer.getExceptionManager().handleException(e);
+            return TaskSchedule.stop();
+        }
+        if (next < definitions.length) {
+            return TaskSchedule.nextTick();
+        }
+        future.complete(getSpawned());
+        return TaskSchedule.stop();
+    }
+
+    /**
+     * Loads the chunks the next NPCs spawn in. An NPC added to an instance is shown once its chunk is loaded,
+     * which happens later, outside the batch, if the chunk is not loaded yet. Loading them first keeps every
+     * NPC of a tick in the same batch, so their viewers get coalesced packets.
+     * @return Whether the chunks are loaded and the NPCs can be spawned
+     */
+    private boolean loadChunks() {
+        CompletableFuture<Void> loading = this.loading;
+        if (loading != null) {
+            if (!loading.isDone()) {
+                return false;
+            }
+            this.loading = null;
+            loading.join();
+        }
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        int end = Math.min(definitions.length, next + maxPerTick);
+        for (int i = next; i < end; i++) {
+            int chunkX = definitions[i].position.blockX() >> 4;
+            int chunkZ = definitions[i].position.blockZ() >> 4;
+            if (!instances[i].isChunkLoaded(chunkX, chunkZ)) {
+                loads.add(instances[i].loadChunk(chunkX, chunkZ));
+            }
+        }
+        if (loads.isEmpty()) {
+            return true;
+        }
+        this.loading = CompletableFuture.allOf(loads.toArray(CompletableFuture[]::new));
+        return false;
+    }
+
+    /**
+     * Gets the future completed with every spawned NPC, nearest viewer first, once the last one is spawned.
+     * Cancelling it stops the spawn, keeping the NPCs spawned so far.
+     * @return The future
+     */
+    public @NotNull CompletableFuture<List<NPC>> getFuture() {
+        return future;
+    }
+
+    /**
+     * Gets the NPCs spawned so far.
+     * @return A snapshot of the spawned NPCs
+     */
+    public @NotNull List<NPC> getSpawned() {
+        synchronized (spawned) {
+            return Collections.unmodifiableList(new ArrayList<>(spawned));
+        }
+    }
+
+    /**
+     * Gets the number of NPCs spawned so far.
+     * @return The number of spawned NPCs
+     */
+    public int getSpawnedCount() {
+        return next;
+    }
+
+    /**
+     * Gets the number of NPCs to spawn in total.
+     * @return The total number of NPCs
+     */
+    public int getTotal() {
+        return definitions.length;
+    }
+
+    /**
+     * Gets the share of NPCs spawned so far.
+     * @return The progress, from 0 to 1
+     */
+    public double getProgress() {
+        return definitions.length == 0 ? 1 : (double) next / definitions.length;
+    }
+
+    /**
+     * Stops the spawn after the current tick, keeping the NPCs spawned so far.
+     */
+    public void cancel() {
+        future.cancel(false);
+    }
+}
@@ -0,0 +1,242 @@
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps the {@link NavigationalNPC}s of an instance from piling up on each other, once per tick.
+ * <p>
+ * The positions of the NPCs are copied into primitive arrays and sorted into a spatial hash of cells as
+ * wide as the separation radius, so each NPC only checks the NPCs in its own and the eight surrounding
+ * cells and the cost grows with the size of the crowd. Each NPC gets a push away from the NPCs that are too
+ * close, which it adds to its velocity after following its path.
+ */
+public class CrowdSeparation {
+    private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+    private volatile double radius = 0.8;
+    private volatile double strength = 2;
+
+    private final Reference2IntOpenHashMap<NavigationalNPC> slots = new Reference2IntOpenHashMap<>();
+    private NavigationalNPC[] members = new NavigationalNPC[16];
+    private int count;
+
+    private double[] xs = new double[16];
+    private double[] zs = new double[16];
+    private int[] cells = new int[16];
+    private int[] sorted = new int[16];
+    private int[] cellStarts = new int[33];
+    private int[] cellEnds = new int[32];
+    private final int[] visited = new int[9];
+    private double[] pushX = new double[16];
+    private double[] pushZ = new double[16];
+
+    CrowdSeparation() {
+        this.slots.defaultReturnValue(-1);
+    }
+
+    void track(@NotNull NavigationalNPC npc) {
+        changes.add(new Change(npc, true));
+    }
+
+    void forget(@NotNull NavigationalNPC npc) {
+        changes.add(new Change(npc, false));
+    }
+
+    void tick() {
+        // Applied in order, so an NPC pooled and respawned within a tick stays a member
+        Change change;
+        while ((change = changes.poll()) != null) {
+            if (change.added()) {
+                addMember(change.npc());
+            } else {
+                removeMember(change.npc());
+            }
+        }
+        if (count < 2) {
+            Arrays.fill(pushX, 0, count, 0);
+            Arrays.fill(pushZ, 0, count, 0);
+            return;
+        }
+        double radius = this.radius;
+        double strength = this.strength;
+        int tableSize = Integer.highestOneBit(count * 2 - 1) << 1;
+        int mask = tableSize - 1;
+        if (cellStarts.length < tableSize + 1) {
+            cellStarts = new int[tableSize + 1];
+            cellEnds = new int[tableSize];
+        }
+
+        // Copy the positions and count the NPCs per cell
+        Arrays.fill(cellStarts, 0, tableSize + 1, 0);
+        for (int i = 0; i < count; i++) {
+            Pos position = members[i].getPosition();
+            xs[i] = position.x();
+            zs[i] = position.z();
+            int cell = cellHash(cell(xs[i], radius), cell(zs[i], radius)) & mask;
+            cells[i] = cell;
+            cellStarts[cell + 1]++;
+        }
+        for (int cell = 0; cell < tableSize; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+        // Sort the NPCs by cell, filling each cell from its end
+        System.arraycopy(cellStarts, 1, cellEnds, 0, tableSize);
+        for (int i = 0; i < count; i++) {
+            sorted[--cellEnds[cells[i]]] = i;
+        }
+
+        double radiusSquared = radius * radius;
+        for (int i = 0; i < count; i++) {
+            double x = xs[i];
+            double z = zs[i];
+            int cellX = cell(x, radius);
+            int cellZ = cell(z, radius);
+            double forceX = 0;
+            double forceZ = 0;
+            int visitedCount = 0;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    int cell = cellHash(cellX + dx, cellZ + dz) & mask;
+                    // Neighbouring cells can share a slot of the hash, which must only be counted once
+                    if (contains(visited, visitedCount, cell)) {
+                        continue;
+                    }
+                    visited[visitedCount++] = cell;
+                    for (int k = cellStarts[cell]; k < cellStarts[cell + 1]; k++) {
+                        int other = sorted[k];
+                        if (other == i) {
+                            continue;
+                        }
+                        double awayX = x - xs[other];
+                        double awayZ = z - zs[other];
+                        double distanceSquared = awayX * awayX + awayZ * awayZ;
+                        if (distanceSquared >= radiusSquared) {
+                            continue;
+                        }
+                        double distance = Math.sqrt(distanceSquared);
+                        if (distance < 1e-4) {
+                            // Standing on the same spot, so push them opposite ways along a direction picked by the pair
+                            double angle = (Math.min(i, other) * 31 + Math.max(i, other)) * 2.399963;
+                            double side = i < other ? 1 : -1;
+                            forceX += side * Math.cos(angle);
+                            forceZ += side * Math.sin(angle);
+                            continue;
+                        }
+                        double overlap = (radius - distance) / radius;
+                        forceX += awayX / distance * overlap;
+                        forceZ += awayZ / distance * overlap;
+                    }
+                }
+            }
+            double force = Math.sqrt(forceX * forceX + forceZ * forceZ);
+            // Crowded NPCs are pushed at most at full strength, however many neighbours they have
+            double scale = force > 1 ? strength / force : strength;
+            pushX[i] = forceX * scale;
+            pushZ[i] = forceZ * scale;
+        }
+    }
+
+    /**
+     * Gets the push an NPC gets away from its neighbours this tick.
+     * @param npc The NPC
+     * @return The push in blocks per second, zero if no NPC is too close
+     */
+    @NotNull Vec getPush(@NotNull NavigationalNPC npc) {
+        int slot = slots.getInt(npc);
+        if (slot == -1 || (pushX[slot] == 0 && pushZ[slot] == 0)) {
+            return Vec.ZERO;
+        }
+        return new Vec(pushX[slot], 0, pushZ[slot]);
+    }
+
+    /**
+     * Gets the distance under which NPCs push each other away.
+     * @return The separation radius in blocks
+     */
+    public double getRadius() {
+        return radius;
+    }
+
+    /**
+     * Sets the distance under which NPCs push each other away.
+     * @param radius The separation radius in blocks
+     */
+    public void setRadius(double radius) {
+        this.radius = Math.max(0.1, radius);
+    }
+
+    /**
+     * Gets the speed at which fully overlapping NPCs are pushed apart.
+     * @return The strength in blocks per second
+     */
+    public double getStrength() {
+        return strength;
+    }
+
+    /**
+     * Sets the speed at which fully overlapping NPCs are pushed apart.
+     * @param strength The strength in blocks per second, zero to disable the separation
+     */
+    public void setStrength(double strength) {
+        this.strength = Math.max(0, strength);
+    }
+
+    private void addMember(NavigationalNPC npc) {
+        if (slots.getInt(npc) != -1) {
+            return;
+        }
+        if (count == members.length) {
+            int capacity = count * 2;
+            members = Arrays.copyOf(members, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            sorted = Arrays.copyOf(sorted, capacity);
+            pushX = Arrays.copyOf(pushX, capacity);
+            pushZ = Arrays.copyOf(pushZ, capacity);
+        }
+        members[count] = npc;
+        pushX[count] = 0;
+        pushZ[count] = 0;
+        slots.put(npc, count++);
+    }
+
+    private void removeMember(NavigationalNPC npc) {
+        int slot = slots.removeInt(npc);
+        if (slot == -1) {
+            return;
+        }
+        // Move the last member into the freed slot
+        int last = --count;
+        if (slot != last) {
+            members[slot] = members[last];
+            pushX[slot] = pushX[last];
+            pushZ[slot] = pushZ[last];
+            slots.put(members[slot], slot);
+        }
+        members[last] = null;
+    }
+
+    private record Change(NavigationalNPC npc, boolean added) {
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int cell(double coordinate, double size) {
+        return (int) Math.floor(coordinate / size);
+    }
+
+    private static int cellHash(int cellX, int cellZ) {
+        return (cellX * 73856093) ^ (cellZ * 19349663);
+    }
+}
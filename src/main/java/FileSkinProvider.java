@@ -0,0 +1,99 @@
+import net.minestom.server.entity.PlayerSkin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads skins from a directory, one {@code <reference>.skin} properties file per skin with a {@code value}
+ * and a {@code signature} key. {@link SkinResolver} uses the same layout for its on-disk cache, and tests can
+ * use it to resolve skins without a network.
+ */
+public class FileSkinProvider implements SkinProvider {
+    private final Path directory;
+    private final Executor executor;
+
+    /**
+     * Creates a provider reading from a directory.
+     * @param directory The directory holding the skin files
+     * @param executor The executor to read files on
+     */
+    public FileSkinProvider(@NotNull Path directory, @NotNull Executor executor) {
+        this.directory = directory;
+        this.executor = executor;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<PlayerSkin> fetch(@NotNull String reference) {
+        return CompletableFuture.supplyAsync(() -> read(reference), executor);
+    }
+
+    /**
+     * Reads a skin on the calling thread.
+     * @param reference The reference of the skin
+     * @return The skin, or null if there is no file for it
+     */
+    public @Nullable PlayerSkin read(@NotNull String reference) {
+        Path file = file(reference);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String value = properties.getProperty("value");
+        if (value == null) {
+            return null;
+        }
+        return new PlayerSkin(value, properties.getProperty("signature"));
+    }
+
+    /**
+     * Writes a skin on the calling thread, replacing any previous file for the reference.
+     * @param reference The reference of the skin
+     * @param skin The skin
+     */
+    public void write(@NotNull String reference, @NotNull PlayerSkin skin) {
+        Properties properties = new Properties();
+        properties.setProperty("value", skin.textures());
+        if (skin.signature() != null) {
+            properties.setProperty("signature", skin.signature());
+        }
+        Path file = file(reference);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "skin", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, reference);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the directory the skin files are in.
+     * @return The directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private Path file(String reference) {
+        return directory.resolve(reference.replaceAll("[^A-Za-z0-9_.-]", "_") + ".skin");
+    }
+}
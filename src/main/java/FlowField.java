@@ -0,0 +1,167 @@
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The next step towards a goal from every walkable block around it, so any number of NPCs walking to the
+ * same goal share one search.
+ * <p>
+ * The field is a Dijkstra search run backwards from the goal over a {@link PathSnapshot}, with the same moves
+ * as {@link PathSearch}. Each block of the box around the goal keeps one byte naming the step to take, so
+ * looking up the next step is an array read.
+ */
+public final class FlowField {
+    private static final byte NONE = -1;
+
+    private final int goalX;
+    private final int goalY;
+    private final int goalZ;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final int width;
+    private final int height;
+    private final byte[] steps;
+
+    private FlowField(int goalX, int goalY, int goalZ, int radius, int verticalRadius, byte[] steps) {
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.goalZ = goalZ;
+        this.originX = goalX - radius;
+        this.originY = goalY - verticalRadius;
+        this.originZ = goalZ - radius;
+        this.width = 2 * radius + 1;
+        this.height = 2 * verticalRadius + 1;
+        this.steps = steps;
+    }
+
+    /**
+     * Computes the field of a goal.
+     * @param snapshot The blocks around the goal
+     * @param goal The goal
+     * @param radius The horizontal distance from the goal the field covers
+     * @param verticalRadius The vertical distance from the goal the field covers
+     * @param cancelled Whether the computation should stop early
+     * @return The field, or null if it was cancelled
+     */
+    static @Nullable FlowField compute(@NotNull PathSnapshot snapshot, @NotNull Point goal, int radius,
+                                       int verticalRadius, @NotNull BooleanSupplier cancelled) {
+        int goalX = goal.blockX();
+        int goalZ = goal.blockZ();
+        int goalY = goal.blockY();
+        // Stand on the ground next to the goal if the goal itself is not walkable
+        for (int dy : new int[]{0, 1, -1}) {
+            if (PathSearch.isWalkable(snapshot, goalX, goal.blockY() + dy, goalZ)) {
+                goalY = goal.blockY() + dy;
+                break;
+            }
+        }
+        int width = 2 * radius + 1;
+        int height = 2 * verticalRadius + 1;
+        byte[] steps = new byte[width * height * width];
+        Arrays.fill(steps, NONE);
+        FlowField field = new FlowField(goalX, goalY, goalZ, radius, verticalRadius, steps);
+        if (!PathSearch.isWalkable(snapshot, goalX, goalY, goalZ)) {
+            return field;
+        }
+        float[] costs = new float[steps.length];
+        Arrays.fill(costs, Float.POSITIVE_INFINITY);
+        NodeHeap open = new NodeHeap();
+        int goalIndex = field.index(goalX, goalY, goalZ);
+        costs[goalIndex] = 0;
+        open.push(goalIndex, 0);
+        int expanded = 0;
+        while (!open.isEmpty()) {
+            double popped = open.peekScore();
+            int current = open.pop();
+            if (popped > costs[current]) {
+                // A stale entry, the cell was already expanded at the lower cost it was pushed with since
+                continue;
+            }
+            if (++expanded % 1024 == 0 && cancelled.getAsBoolean()) {
+                return null;
+            }
+            int x = field.originX + current / (height * width);
+            int y = field.originY + (current / width) % height;
+            int z = field.originZ + current % width;
+            for (int direction = 0; direction < PathSearch.DIRECTIONS; direction++) {
+                for (int stepIndex = 0; stepIndex < PathSearch.STEPS_Y.length; stepIndex++) {
+                    // The block an NPC would step from to get here
+                    int dy = PathSearch.STEPS_Y[stepIndex];
+                    int fromX = x - PathSearch.DIRECTIONS_X[direction];
+                    int fromY = y - dy;
+                    int fromZ = z - PathSearch.DIRECTIONS_Z[direction];
+                    int from = field.index(fromX, fromY, fromZ);
+                    if (from == -1 || PathSearch.step(snapshot, fromX, fromY, fromZ, direction) != dy) {
+                        continue;
+                    }
+                    float cost = costs[current] + (float) PathSearch.stepCost(direction, dy);
+                    if (cost < costs[from]) {
+                        costs[from] = cost;
+                        steps[from] = (byte) (direction * PathSearch.STEPS_Y.length + stepIndex);
+                        open.push(from, cost);
+                    }
+                }
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Gets the next point to walk to from a position.
+     * @param position The position of the NPC
+     * @return The center of the next block, or null if the position is at the goal or cannot reach it
+     */
+    public @Nullable Vec next(@NotNull Point position) {
+        int x = position.blockX();
+        int y = position.blockY();
+        int z = position.blockZ();
+        int index = index(x, y, z);
+        if (index == -1 || steps[index] == NONE) {
+            // Mid-jump or standing on the edge of a block, so try the block below
+            y--;
+            index = index(x, y, z);
+            if (index == -1 || steps[index] == NONE) {
+                return null;
+            }
+        }
+        int step = steps[index];
+        int direction = step / PathSearch.STEPS_Y.length;
+        int dy = PathSearch.STEPS_Y[step % PathSearch.STEPS_Y.length];
+        return new Vec(x + PathSearch.DIRECTIONS_X[direction] + 0.5, y + dy, z + PathSearch.DIRECTIONS_Z[direction] + 0.5);
+    }
+
+    /**
+     * Gets whether a position is in the goal block.
+     * @param position The position
+     * @return Whether the position is at the goal
+     */
+    public boolean isAtGoal(@NotNull Point position) {
+        return position.blockX() == goalX && position.blockZ() == goalZ && Math.abs(position.blockY() - goalY) <= 1;
+    }
+
+    /**
+     * Gets whether a block is covered by the field.
+     * @param x The block X coordinate
+     * @param y The block Y coordinate
+     * @param z The block Z coordinate
+     * @return Whether the block is in the field
+     */
+    boolean contains(int x, int y, int z) {
+        return index(x, y, z) != -1;
+    }
+
+    private int index(int x, int y, int z) {
+        int localX = x - originX;
+        int localY = y - originY;
+        int localZ = z - originZ;
+        if (localX < 0 || localX >= width || localY < 0 || localY >= height || localZ < 0 || localZ >= width) {
+            return -1;
+        }
+        return (localX * height + localY) * width + localZ;
+    }
+}
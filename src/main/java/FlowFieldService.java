@@ -0,0 +1,212 @@
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one {@link FlowField} per goal between all {@link NavigationalNPC}s walking to it.
+ * <p>
+ * Fields are computed on the workers of the {@link PathfindingService} from a copy of the blocks around the
+ * goal. A block change only marks the fields covering it as dirty; a dirty field is recomputed the next time
+ * an NPC reads it, and NPCs keep walking along the previous field until the new one is ready. Fields no NPC
+ * read for a while are dropped.
+ */
+public class FlowFieldService {
+    private final PathfindingService pathfinding;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private volatile int radius = 48;
+    private volatile int verticalRadius = 16;
+    private volatile long expiry = 30_000;
+
+    FlowFieldService(@NotNull PathfindingService pathfinding) {
+        this.pathfinding = pathfinding;
+    }
+
+    /**
+     * Gets the field of a goal, starting to compute it if it is missing or dirty. Must be called on the tick
+     * thread of the instance, as it copies its blocks.
+     * @param instance The instance
+     * @param goal The goal
+     * @return The latest field, which may be out of date, or null if the first one is still being computed
+     */
+    public @Nullable FlowField get(@NotNull Instance instance, @NotNull Point goal) {
+        return entry(instance, goal).field();
+    }
+
+    @NotNull Entry entry(@NotNull Instance instance, @NotNull Point goal) {
+        Vec block = new Vec(goal.blockX(), goal.blockY(), goal.blockZ());
+        return entries.computeIfAbsent(new Key(instance, block), key -> new Entry(key));
+    }
+
+    /**
+     * Marks the fields covering a block as dirty, so they are recomputed the next time they are read.
+     * @param instance The instance of the block
+     * @param block The position of the block
+     */
+    public void invalidate(@NotNull Instance instance, @NotNull Point block) {
+        int radius = this.radius;
+        int verticalRadius = this.verticalRadius;
+        for (Entry entry : entries.values()) {
+            Vec goal = entry.key.goal();
+            if (entry.key.instance() == instance
+                && Math.abs(goal.blockX() - block.blockX()) <= radius + 1
+                && Math.abs(goal.blockZ() - block.blockZ()) <= radius + 1
+                && Math.abs(goal.blockY() - block.blockY()) <= verticalRadius + 2) {
+                entry.dirty = true;
+            }
+        }
+    }
+
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        long expiry = this.expiry;
+        entries.values().removeIf(entry -> {
+            if (now - entry.lastUsed < expiry) {
+                return false;
+            }
+            entry.discard();
+            return true;
+        });
+    }
+
+    void removeInstance(@NotNull Instance instance) {
+        entries.values().removeIf(entry -> {
+            if (entry.key.instance() != instance) {
+                return false;
+            }
+            entry.discard();
+            return true;
+        });
+    }
+
+    /**
+     * Gets the horizontal distance from the goal a field covers.
+     * @return The radius in blocks
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Sets the horizontal distance from the goal a field covers. Applies to fields computed afterwards.
+     * Larger fields copy more blocks on the tick thread and take more memory.
+     * @param radius The radius in blocks
+     */
+    public void setRadius(int radius) {
+        this.radius = Math.max(1, radius);
+    }
+
+    /**
+     * Gets the vertical distance from the goal a field covers.
+     * @return The vertical radius in blocks
+     */
+    public int getVerticalRadius() {
+        return verticalRadius;
+    }
+
+    /**
+     * Sets the vertical distance from the goal a field covers. Applies to fields computed afterwards.
+     * @param verticalRadius The vertical radius in blocks
+     */
+    public void setVerticalRadius(int verticalRadius) {
+        this.verticalRadius = Math.max(2, verticalRadius);
+    }
+
+    /**
+     * Gets the time after which a field no NPC read is dropped.
+     * @return The expiry in milliseconds
+     */
+    public long getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * Sets the time after which a field no NPC read is dropped.
+     * @param expiry The expiry in milliseconds
+     */
+    public void setExpiry(long expiry) {
+        this.expiry = Math.max(0, expiry);
+    }
+
+    /**
+     * Gets the number of goals with a field.
+     * @return The number of fields
+     */
+    public int getFieldCount() {
+        return entries.size();
+    }
+
+    private record Key(Instance instance, Vec goal) {
+    }
+
+    /**
+     * The field of one goal, which NPCs keep while they walk to it so reading it is not a map lookup.
+     */
+    final class Entry {
+        private final Key key;
+        private volatile FlowField field;
+        private volatile boolean dirty = true;
+        private volatile CompletableFuture<FlowField> pending;
+        private volatile boolean discarded;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Entry(Key key) {
+            this.key = key;
+        }
+
+        /**
+         * Gets the latest field, starting to recompute it if it is dirty. Must be called on the tick thread
+         * of the instance.
+         * @return The field, or null if the first one is still being computed
+         */
+        @Nullable FlowField field() {
+            lastUsed = System.currentTimeMillis();
+            CompletableFuture<FlowField> pending = this.pending;
+            if (dirty && (pending == null || pending.isDone())) {
+                compute();
+            }
+            return field;
+        }
+
+        /**
+         * Gets whether the entry was dropped, after which NPCs should ask the service for a new one.
+         * @return Whether the entry was dropped
+         */
+        boolean isDiscarded() {
+            return discarded;
+        }
+
+        private void compute() {
+            dirty = false;
+            Vec goal = key.goal();
+            int radius = FlowFieldService.this.radius;
+            int verticalRadius = FlowFieldService.this.verticalRadius;
+            // One more block around the field, so its edge can see the blocks it steps onto
+            PathSnapshot snapshot = PathSnapshot.capture(key.instance(), goal, radius + 1, verticalRadius + 3);
+            CompletableFuture<FlowField> computation = pathfinding.submit(cancelled ->
+                FlowField.compute(snapshot, goal, radius, verticalRadius, cancelled));
+            pending = computation;
+            computation.whenComplete((computed, exception) -> {
+                if (exception != null) {
+                    // Most likely a full queue, so try again on the next read
+                    dirty = true;
+                } else if (computed != null) {
+                    field = computed;
+                }
+            });
+        }
+
+        private void discard() {
+            discarded = true;
+            CompletableFuture<FlowField> pending = this.pending;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minestom.server.Tickable;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The NPCs of a single instance, bucketed by the chunk they are in.
+ * <p>
+ * Every method may be called from any thread. Writes to an NPC are serialized through its entry in
+ * {@link #tracked}, chunk buckets are copy-on-write arrays, and the chunk table is copied whenever a chunk
+ * gains or loses its bucket, so reads never take a lock.
+ */
+public class InstanceNPCs {
+    private final Instance instance;
+    private final ConcurrentHashMap<NPC, Tracked> tracked = new ConcurrentHashMap<>();
+    private volatile Long2ObjectOpenHashMap<Bucket> chunks = new Long2ObjectOpenHashMap<>();
+    private final LookAtEngine lookAt = new LookAtEngine(this);
+    private final TimerWheel timers = new TimerWheel();
+    private final ProximityTracker proximity = new ProximityTracker(this);
+    private final CrowdSeparation separation = new CrowdSeparation();
+    private final Tickable tickGroup = time -> tick();
+    private PlayerInfoBatch playerInfo;
+
+    InstanceNPCs(@NotNull Instance instance) {
+        this.instance = instance;
+    }
+
+    /**
+     * Runs the per-tick work for the NPCs of this instance, on the thread of its tick group.
+     */
+    void tick() {
+        timers.tick();
+        proximity.tick();
+        lookAt.tick();
+        separation.tick();
+    }
+
+    /**
+     * Gets the element scheduled on the {@link NPCTickGroups} dispatcher for this instance.
+     * @return The tick group
+     */
+    @NotNull Tickable getTickGroup() {
+        return tickGroup;
+    }
+
+    boolean add(@NotNull NPC npc) {
+        boolean[] added = {false};
+        tracked.computeIfAbsent(npc, key -> {
+            long chunk = chunkIndex(npc.getPosition());
+            addToBucket(chunk, npc);
+            proximity.track(npc);
+            if (npc instanceof LookingNPC looking) {
+                lookAt.track(looking);
+            }
+            if (npc instanceof NavigationalNPC navigational) {
+                separation.track(navigational);
+            }
+            added[0] = true;
+            return new Tracked(chunk);
+        });
+        if (added[0]) {
+            invalidatePlayerInfo();
+        }
+        return added[0];
+    }
+
+    boolean remove(@NotNull NPC npc) {
+        boolean[] removed = {false};
+        tracked.computeIfPresent(npc, (key, entry) -> {
+            removeFromBucket(entry.chunk, npc);
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            invalidatePlayerInfo();
+            proximity.forget(npc);
+            if (npc instanceof LookingNPC looking) {
+                lookAt.forget(looking);
+            }
+            if (npc instanceof NavigationalNPC navigational) {
+                separation.forget(navigational);
+            }
+        }
+        return removed[0];
+    }
+
+    void update(@NotNull NPC npc) {
+        tracked.computeIfPresent(npc, (key, entry) -> {
+            long chunk = chunkIndex(npc.getPosition());
+            if (chunk != entry.chunk) {
+                removeFromBucket(entry.chunk, npc);
+                addToBucket(chunk, npc);
+                entry.chunk = chunk;
+            }
+            return entry;
+        });
+    }
+
+    void lookRangeChanged(@NotNull LookingNPC npc) {
+        if (tracked.containsKey(npc)) {
+            lookAt.track(npc);
+        }
+    }
+
+    /**
+     * Drops the merged player info packets, so they are rebuilt the next time a player joins.
+     */
+    synchronized void invalidatePlayerInfo() {
+        playerInfo = null;
+    }
+
+    /**
+     * Gets the player info entries of every NPC in the instance, merged into as few packets as possible.
+     * The result is cached until an NPC is added, removed or changes its entry.
+     * @return The merged player info entries
+     */
+    public PlayerInfoBatch getPlayerInfo() {
+        synchronized (this) {
+            if (playerInfo != null) {
+                return playerInfo;
+            }
+            playerInfo = PlayerInfoBatch.of(tracked.keySet());
+            return playerInfo;
+        }
+    }
+
+    private void addToBucket(long chunk, NPC npc) {
+        // A bucket can be dropped between the lookup and the add, in which case a new one is made
+        while (!bucket(chunk).add(npc)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void removeFromBucket(long chunk, NPC npc) {
+        Bucket bucket = chunks.get(chunk);
+        if (bucket == null || !bucket.remove(npc)) {
+            return;
+        }
+        // The bucket is empty, drop it so NPCs walking across the world do not grow the chunk table
+        synchronized (this) {
+            synchronized (bucket) {
+                if (bucket.dropped || bucket.npcs.length != 0 || chunks.get(chunk) != bucket) {
+                    return;
+                }
+                bucket.dropped = true;
+                Long2ObjectOpenHashMap<Bucket> copy = new Long2ObjectOpenHashMap<>(chunks);
+                copy.remove(chunk);
+                chunks = copy;
+            }
+        }
+    }
+
+    private Bucket bucket(long chunk) {
+        Bucket bucket = chunks.get(chunk);
+        if (bucket != null && !bucket.dropped) {
+            return bucket;
+        }
+        synchronized (this) {
+            bucket = chunks.get(chunk);
+            if (bucket == null) {
+                Long2ObjectOpenHashMap<Bucket> copy = new Long2ObjectOpenHashMap<>(chunks);
+                bucket = new Bucket();
+                copy.put(chunk, bucket);
+                chunks = copy;
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * Gets the instance these NPCs are in.
+     * @return The instance
+     */
+    public Instance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the timers of delayed NPC actions, which run on the thread of the instance's tick group.
+     * @return The timer wheel
+     */
+    public TimerWheel getTimers() {
+        return timers;
+    }
+
+    /**
+     * Gets the tracker of which NPCs are close enough to a player to be awake.
+     * @return The proximity tracker
+     */
+    public ProximityTracker getProximity() {
+        return proximity;
+    }
+
+    /**
+     * Gets the steering that keeps the navigational NPCs of the instance apart.
+     * @return The crowd separation
+     */
+    public CrowdSeparation getSeparation() {
+        return separation;
+    }
+
+    /**
+     * Gets all NPCs in the instance. The returned view can be iterated while NPCs are added or removed.
+     * @return The NPCs
+     */
+    public Collection<NPC> getNPCs() {
+        return Collections.unmodifiableSet(tracked.keySet());
+    }
+
+    /**
+     * Gets the NPCs in a chunk.
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return A snapshot of the NPCs in the chunk
+     */
+    public Collection<NPC> getNPCs(int chunkX, int chunkZ) {
+        Bucket bucket = chunks.get(chunkIndex(chunkX, chunkZ));
+        return bucket == null ? List.of() : List.of(bucket.npcs);
+    }
+
+    /**
+     * Gets the NPCs within a radius of a point.
+     * @param center The center of the search
+     * @param radius The radius of the search
+     * @return The NPCs within the radius
+     */
+    public List<NPC> getNPCs(@NotNull Point center, double radius) {
+        List<NPC> result = new ArrayList<>();
+        Long2ObjectOpenHashMap<Bucket> chunks = this.chunks;
+        double radiusSquared = radius * radius;
+        int minX = chunkCoordinate(center.x() - radius);
+        int maxX = chunkCoordinate(center.x() + radius);
+        int minZ = chunkCoordinate(center.z() - radius);
+        int maxZ = chunkCoordinate(center.z() + radius);
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                Bucket bucket = chunks.get(chunkIndex(x, z));
+                if (bucket == null) {
+                    continue;
+                }
+                for (NPC npc : bucket.npcs) {
+                    if (npc.getPosition().distanceSquared(center) <= radiusSquared) {
+                        result.add(npc);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    NPC[] getChunkBucket(int chunkX, int chunkZ) {
+        Bucket bucket = chunks.get(chunkIndex(chunkX, chunkZ));
+        return bucket == null ? Bucket.EMPTY : bucket.npcs;
+    }
+
+    /**
+     * Gets the number of NPCs in the instance.
+     * @return The number of NPCs
+     */
+    public int size() {
+        return tracked.size();
+    }
+
+    static int chunkCoordinate(double coordinate) {
+        return (int) Math.floor(coordinate) >> 4;
+    }
+
+    static long chunkIndex(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    static long chunkIndex(@NotNull Point point) {
+        return chunkIndex(chunkCoordinate(point.x()), chunkCoordinate(point.z()));
+    }
+
+    private static final class Tracked {
+        private long chunk;
+
+        private Tracked(long chunk) {
+            this.chunk = chunk;
+        }
+    }
+
+    private static final class Bucket {
+        private static final NPC[] EMPTY = new NPC[0];
+
+        private volatile NPC[] npcs = EMPTY;
+        private volatile boolean dropped;
+
+        /**
+         * Adds an NPC to the bucket.
+         * @return Whether it was added, false if the bucket was dropped from the chunk table
+         */
+        private synchronized boolean add(NPC npc) {
+            if (dropped) {
+                return false;
+            }
+            NPC[] current = npcs;
+            NPC[] copy = new NPC[current.length + 1];
+            System.arraycopy(current, 0, copy, 0, current.length);
+            copy[current.length] = npc;
+            npcs = copy;
+            return true;
+        }
+
+        /**
+         * Removes an NPC from the bucket.
+         * @return Whether the bucket became empty
+         */
+        private synchronized boolean remove(NPC npc) {
+            NPC[] current = npcs;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i] == npc) {
+                    NPC[] copy = new NPC[current.length - 1];
+                    System.arraycopy(current, 0, copy, 0, i);
+                    System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+                    npcs = copy.length == 0 ? EMPTY : copy;
+                    return copy.length == 0;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Routes entity interactions to the NPC that was clicked, looked up by entity id.
+ * <p>
+ * Handlers are spread over segments by entity id. Each segment is a copy-on-write map, so dispatching never
+ * takes a lock, and registering an NPC only copies the handlers of its segment.
+ */
+public class InteractDispatcher {
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    InteractDispatcher() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Registers the interact handler of an entity, replacing any previous one.
+     * @param entityId The entity id of the NPC
+     * @param handler The handler to call when the NPC is interacted with
+     */
+    public void register(int entityId, @NotNull Consumer<ClientInteractEntityPacket> handler) {
+        segment(entityId).put(entityId, handler);
+    }
+
+    /**
+     * Unregisters the interact handler of an entity.
+     * @param entityId The entity id of the NPC
+     */
+    public void unregister(int entityId) {
+        segment(entityId).remove(entityId);
+    }
+
+    /**
+     * Passes an interaction to the handler of its target, if it has one.
+     * @param packet The interaction
+     * @return Whether a handler was found
+     */
+    public boolean dispatch(@NotNull ClientInteractEntityPacket packet) {
+        int entityId = packet.targetId();
+        Consumer<ClientInteractEntityPacket> handler = segment(entityId).handlers.get(entityId);
+        if (handler == null) {
+            return false;
+        }
+        handler.accept(packet);
+        return true;
+    }
+
+    private Segment segment(int entityId) {
+        return segments[entityId & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment {
+        private volatile Int2ObjectOpenHashMap<Consumer<ClientInteractEntityPacket>> handlers =
+            new Int2ObjectOpenHashMap<>();
+
+        private synchronized void put(int entityId, Consumer<ClientInteractEntityPacket> handler) {
+            Int2ObjectOpenHashMap<Consumer<ClientInteractEntityPacket>> copy = new Int2ObjectOpenHashMap<>(handlers);
+            copy.put(entityId, handler);
+            handlers = copy;
+        }
+
+        private synchronized void remove(int entityId) {
+            if (!handlers.containsKey(entityId)) {
+                return;
+            }
+            Int2ObjectOpenHashMap<Consumer<ClientInteractEntityPacket>> copy = new Int2ObjectOpenHashMap<>(handlers);
+            copy.remove(entityId);
+            handlers = copy;
+        }
+    }
+}
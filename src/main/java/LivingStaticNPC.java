@@ -1,14 +1,12 @@
 import net.kyori.adventure.text.Component;
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.*;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
 import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -16,28 +14,33 @@ import java.util.function.Consumer;
 /**
  * A static NPC that has health, but does not move on its own.
  */
-public class LivingStaticNPC extends LivingEntity implements NPC {
-    private String skinSignature;
-    private String skinValue;
+public class LivingStaticNPC extends LivingEntity implements LookingNPC, PooledNPC {
     private boolean lookAtPlayers;
-    private boolean listed;
+    private volatile int tickInterval = 1;
     private long lookRangeSquared;
+    private float lookThreshold;
+    private int lookRate;
+    private LookMode lookMode;
     private double maxHealth;
     private boolean respawns;
     private long respawnDelay;
+    private volatile TimerWheel.Timer respawnTimer;
+    private volatile boolean despawned;
 
-    private PlayerInfoUpdatePacket playerInfoUpdatePacket;
+    private final NPCPlayerInfo playerInfo;
 
     protected LivingStaticNPC(
             @NotNull UUID uuid,
             @NotNull Instance instance,
             @NotNull Pos position,
             @NotNull Component customName,
-            @NotNull String skinSignature,
-            @NotNull String skinValue,
+            @NotNull Skin skin,
             boolean lookAtPlayers,
             boolean listed,
             long lookRange,
+            float lookThreshold,
+            int lookRate,
+            @NotNull LookMode lookMode,
             double maxHealth,
             float health,
             boolean invulnerable,
@@ -47,12 +50,11 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
     ) {
         // Constructor for full initial customization
         super(EntityType.PLAYER, uuid);
-        this.setInstance(instance, position);
-        this.skinSignature = skinSignature;
-        this.skinValue = skinValue;
         this.lookAtPlayers = lookAtPlayers;
-        this.listed = listed;
-        this.lookRangeSquared = lookRange;
+        this.lookRangeSquared = lookRange * lookRange;
+        this.lookThreshold = lookThreshold;
+        this.lookRate = lookRate;
+        this.lookMode = lookMode;
         this.setMaxHealth(maxHealth);
         this.setHealth(health);
         this.setInvulnerable(invulnerable);
@@ -60,27 +62,11 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
         this.respawnDelay = respawnDelay;
         this.setCustomName(customName);
         this.setCustomNameVisible(true);
-        this.playerInfoUpdatePacket = new PlayerInfoUpdatePacket(
-            PlayerInfoUpdatePacket.Action.ADD_PLAYER,
-            new PlayerInfoUpdatePacket.Entry(
-                uuid,
-                customName.examinableName(),
-                List.of(
-                    new PlayerInfoUpdatePacket.Property("textures", skinValue, skinSignature) // The client should be able to handle a blank skin property
-                ),
-                this.listed,
-                0,
-                GameMode.CREATIVE,
-                customName,
-                null,
-                0
-            )
-        );
-        MinecraftServer.getPacketListenerManager().setPlayListener(ClientInteractEntityPacket.class, (packet, player) -> {
-            if (packet.targetId() == this.getEntityId()) {
-                interactListener.accept(packet);
-            }
-        });
+        // Viewers are picked by distance in ProximityTracker
+        this.setAutoViewable(false);
+        this.playerInfo = new NPCPlayerInfo(this, this::getCustomName, skin, listed);
+        AuriNPC.getInstance().getInteractDispatcher().register(getEntityId(), interactListener);
+        this.setInstance(instance, position);
     }
 
     public static class Builder {
@@ -92,11 +78,14 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
 
         // Optional parameters
         private Component customName = Component.text("NPC");
-        private String skinSignature = "";
-        private String skinValue = "";
+        private Skin skin = Skin.EMPTY;
+        private String skinReference;
         private boolean lookAtPlayers = true;
         private boolean listed = true;
         private long lookRange = 10;
+        private float lookThreshold = 1;
+        private int lookRate = 20;
+        private LookMode lookMode = LookMode.CLOSEST;
         private float health = 1;
         private boolean invulnerable = false;
         private boolean respawns = false;
@@ -122,7 +111,11 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
          * @return The NPC
          */
         public LivingStaticNPC build() {
-            return new LivingStaticNPC(uuid, instance, position, customName, skinSignature, skinValue, lookAtPlayers, listed, lookRange, maxHealth, health, invulnerable, respawns, respawnDelay, interactListener);
+            LivingStaticNPC npc = new LivingStaticNPC(uuid, instance, position, customName, skin, lookAtPlayers, listed, lookRange, lookThreshold, lookRate, lookMode, maxHealth, health, invulnerable, respawns, respawnDelay, interactListener);
+            if (skinReference != null) {
+                AuriNPC.getInstance().getSkinResolver().apply(npc, skinReference);
+            }
+            return npc;
         }
 
         /**
@@ -152,8 +145,7 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
          * @return The builder
          */
         public LivingStaticNPC.Builder skin(String skinValue, String skinSignature) {
-            this.skinValue = skinValue;
-            this.skinSignature = skinSignature;
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skinValue, skinSignature);
             return this;
         }
 
@@ -163,8 +155,28 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
          * @return The builder
          */
         public LivingStaticNPC.Builder skin(PlayerSkin skin) {
-            this.skinValue = skin.textures();
-            this.skinSignature = skin.signature();
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skin);
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC.
+         * @param skin The shared skin
+         * @return The builder
+         */
+        public LivingStaticNPC.Builder skin(@NotNull Skin skin) {
+            this.skin = skin;
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC from a reference, such as a username, resolved in the background.
+         * The NPC wears the skin set with the other skin methods until the reference is resolved.
+         * @param reference The skin reference
+         * @return The builder
+         */
+        public LivingStaticNPC.Builder skinFrom(@NotNull String reference) {
+            this.skinReference = reference;
             return this;
         }
 
@@ -198,6 +210,36 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
             return this;
         }
 
+        /**
+         * Sets how far the NPC's head has to turn, in degrees, before a new rotation is sent to viewers.
+         * @param lookThreshold The look threshold
+         * @return The builder
+         */
+        public LivingStaticNPC.Builder lookThreshold(float lookThreshold) {
+            this.lookThreshold = lookThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how many times per second at most the NPC's rotation is sent to viewers.
+         * @param lookRate The maximum look updates per second
+         * @return The builder
+         */
+        public LivingStaticNPC.Builder lookRate(int lookRate) {
+            this.lookRate = lookRate;
+            return this;
+        }
+
+        /**
+         * Sets whether the NPC faces the closest player, or every viewer sees it facing them.
+         * @param lookMode The look mode
+         * @return The builder
+         */
+        public LivingStaticNPC.Builder lookMode(@NotNull LookMode lookMode) {
+            this.lookMode = lookMode;
+            return this;
+        }
+
         /**
          * Sets the health of the NPC.
          * @param health The starting health
@@ -230,7 +272,7 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
 
         /**
          * Sets the respawn delay of the NPC.
-         * @param respawnDelay The respawn delay
+         * @param respawnDelay The respawn delay in milliseconds, rounded up to whole ticks
          * @return The builder
          */
         public LivingStaticNPC.Builder respawnDelay(long respawnDelay) {
@@ -241,33 +283,18 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
 
     @Override
     public void tick(long time) {
-        if (lookAtPlayers) {
-            Player closest = null;
-            double closestDistance = Double.MAX_VALUE;
-            for (Entity nearbyEntity : getInstance().getNearbyEntities(this.position, this.lookRangeSquared)) {
-                if (nearbyEntity instanceof Player) {
-                    double distance = this.position.distance(nearbyEntity.getPosition());
-                    if (distance < closestDistance) {
-                        closest = (Player) nearbyEntity;
-                        closestDistance = distance;
-                    }
-                }
-            }
-            if (closest != null) {
-                this.lookAt(closest.getPosition());
-            }
-        }
+        // Static NPCs skip entity physics, and looking at players is done for the whole instance by LookAtEngine
     }
 
     /**
      * Sets the instance of the NPC.
      * @param instance The instance to move the NPC to
+     * @param spawnPosition The position to place the NPC at
      * @return A future that completes when the NPC has been moved
      */
     @Override
-    public CompletableFuture<Void> setInstance(@NotNull Instance instance) {
-        AuriNPC.getInstance().removeNPC(this);
-        CompletableFuture<Void> future = super.setInstance(instance);
+    public CompletableFuture<Void> setInstance(@NotNull Instance instance, @NotNull Pos spawnPosition) {
+        CompletableFuture<Void> future = super.setInstance(instance, spawnPosition);
         future.thenRun(() -> AuriNPC.getInstance().addNPC(this));
         return future;
     }
@@ -279,87 +306,122 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
     public void remove() {
         super.remove();
         AuriNPC.getInstance().removeNPC(this);
+        AuriNPC.getInstance().getInteractDispatcher().unregister(getEntityId());
+        TimerWheel.Timer respawnTimer = this.respawnTimer;
+        if (respawnTimer != null) {
+            respawnTimer.cancel();
+        }
     }
 
     @Override
     public void kill() {
         super.kill();
         if (respawns) {
-            CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    Thread.sleep(respawnDelay);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                return true;
-            });
-            future.thenRun(() -> {
-                refreshIsDead(false);
-                setPose(EntityPose.STANDING);
-                setHealth((float) maxHealth);
-            });
+            respawnTimer = AuriNPC.getInstance().schedule(this, this::revive, TimerWheel.ticks(respawnDelay));
         } else {
             AuriNPC.getInstance().removeNPC(this);
         }
     }
 
-    public PlayerInfoUpdatePacket getPlayerInfoUpdatePacket() {
-        return playerInfoUpdatePacket;
+    private void revive() {
+        respawnTimer = null;
+        refreshIsDead(false);
+        setPose(EntityPose.STANDING);
+        setHealth((float) maxHealth);
     }
 
-    public void remakeInfoUpdatePacket() {
-        this.playerInfoUpdatePacket = new PlayerInfoUpdatePacket(
-            PlayerInfoUpdatePacket.Action.ADD_PLAYER,
-            new PlayerInfoUpdatePacket.Entry(
-                getUuid(),
-                Objects.requireNonNull(getCustomName()).toString(),
-                List.of(
-                        new PlayerInfoUpdatePacket.Property("textures", skinValue, skinSignature) // The client should be able to handle a blank skin property
-                ),
-                this.listed,
-                0,
-                GameMode.CREATIVE,
-                getCustomName(),
-                null,
-                0
-            )
-        );
-        getInstance().getPlayers().forEach(player -> player.sendPacket(playerInfoUpdatePacket));
+    @Override
+    public void despawn() {
+        if (despawned) {
+            return;
+        }
+        despawned = true;
+        TimerWheel.Timer respawnTimer = this.respawnTimer;
+        if (respawnTimer != null) {
+            respawnTimer.cancel();
+            this.respawnTimer = null;
+        }
+        AuriNPC.getInstance().removeNPC(this);
+        AuriNPC.getInstance().getInteractDispatcher().unregister(getEntityId());
+        // Keep the entity tracker from showing the NPC to players until it is respawned
+        updateViewableRule(player -> false);
+    }
+
+    @Override
+    public CompletableFuture<Void> respawn(@NotNull Instance instance, @NotNull Pos position, @NotNull Component customName,
+                                           @NotNull Skin skin, @NotNull Consumer<ClientInteractEntityPacket> interactListener) {
+        // The UUID is kept: despawning queued the removal of the old entry, which PlayerInfoTracker sends
+        // before the new entry when the NPC is shown again
+        setCustomName(customName);
+        revive();
+        playerInfo.reset(skin);
+        AuriNPC.getInstance().getInteractDispatcher().register(getEntityId(), interactListener);
+        updateViewableRule(null);
+        despawned = false;
+        if (instance != getInstance()) {
+            return setInstance(instance, position);
+        }
+        return teleport(position).thenRun(() -> AuriNPC.getInstance().addNPC(this));
+    }
+
+    @Override
+    public boolean isDespawned() {
+        return despawned;
     }
 
     /**
-     * Gets the skin signature of the NPC.
-     * @return The skin signature
+     * Gets the number of ticks between two updates of the NPC, which grows with the distance to its closest player.
+     * @return The tick interval
      */
-    public String getSkinSignature() {
-        return skinSignature;
+    public int getTickInterval() {
+        return tickInterval;
     }
 
     /**
-     * Gets the skin value of the NPC.
-     * @return The skin value
+     * Sets the number of ticks between two updates of the NPC. Called by AuriNPC as players come and go.
+     * @param tickInterval The tick interval
      */
-    public String getSkinValue() {
-        return skinValue;
+    public void setTickInterval(int tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
+    public PlayerInfoUpdatePacket getPlayerInfoUpdatePacket() {
+        return playerInfo.getPacket();
+    }
+
+    public void remakeInfoUpdatePacket() {
+        playerInfo.refresh();
     }
 
     /**
-     * Sets the skin of the NPC.
-     * @param skinValue The skin value
-     * @param skinSignature The skin signature
+     * Gets the player info packet of the NPC, encoded once and reused for every player it is sent to.
+     * @return The cached player info packet
      */
-    public void setSkin(@NotNull String skinValue, @NotNull String skinSignature) {
-        this.skinValue = skinValue;
-        this.skinSignature = skinSignature;
-        remakeInfoUpdatePacket();
+    public SendablePacket getCachedPlayerInfoUpdatePacket() {
+        return playerInfo.getCachedPacket();
+    }
+
+    @Override
+    public void updateNewViewer(@NotNull Player player) {
+        // The client needs the player info entry before it can spawn a player entity
+        playerInfo.sendTo(player);
+        super.updateNewViewer(player);
+    }
+
+    /**
+     * Gets the shared skin of the NPC.
+     * @return The skin
+     */
+    public Skin getSkin() {
+        return playerInfo.getSkin();
     }
 
     /**
      * Sets the skin of the NPC.
-     * @param skin The skin
+     * @param skin The shared skin
      */
-    public void setSkin(PlayerSkin skin) {
-        setSkin(skin.textures(), skin.signature());
+    public void setSkin(@NotNull Skin skin) {
+        playerInfo.setSkin(skin);
     }
 
     /**
@@ -383,7 +445,7 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
      * @return Whether the NPC is listed
      */
     public boolean isListed() {
-        return listed;
+        return playerInfo.isListed();
     }
 
     /**
@@ -391,8 +453,7 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
      * @param listed Whether the NPC is listed
      */
     public void setListed(boolean listed) {
-        this.listed = listed;
-        remakeInfoUpdatePacket();
+        playerInfo.setListed(listed);
     }
 
     /**
@@ -417,6 +478,55 @@ public class LivingStaticNPC extends LivingEntity implements NPC {
      */
     public void setLookRange(long lookRange) {
         this.lookRangeSquared = lookRange * lookRange;
+        AuriNPC.getInstance().getNPCs().lookRangeChanged(this);
+    }
+
+    /**
+     * Gets how far the NPC's head has to turn, in degrees, before a new rotation is sent to viewers.
+     * @return The look threshold
+     */
+    public float getLookThreshold() {
+        return lookThreshold;
+    }
+
+    /**
+     * Sets how far the NPC's head has to turn, in degrees, before a new rotation is sent to viewers.
+     * @param lookThreshold The look threshold
+     */
+    public void setLookThreshold(float lookThreshold) {
+        this.lookThreshold = lookThreshold;
+    }
+
+    /**
+     * Gets how many times per second at most the NPC's rotation is sent to viewers.
+     * @return The maximum look updates per second
+     */
+    public int getLookRate() {
+        return lookRate;
+    }
+
+    /**
+     * Sets how many times per second at most the NPC's rotation is sent to viewers.
+     * @param lookRate The maximum look updates per second
+     */
+    public void setLookRate(int lookRate) {
+        this.lookRate = lookRate;
+    }
+
+    /**
+     * Gets whether the NPC faces the closest player, or every viewer sees it facing them.
+     * @return The look mode
+     */
+    public LookMode getLookMode() {
+        return lookMode;
+    }
+
+    /**
+     * Sets whether the NPC faces the closest player, or every viewer sees it facing them.
+     * @param lookMode The look mode
+     */
+    public void setLookMode(@NotNull LookMode lookMode) {
+        this.lookMode = lookMode;
     }
 
     /**
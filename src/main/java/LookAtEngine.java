@@ -0,0 +1,308 @@
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import net.minestom.server.network.packet.server.play.EntityHeadLookPacket;
+import net.minestom.server.network.packet.server.play.EntityRotationPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Turns the {@link LookingNPC}s of an instance towards their closest player, once per tick.
+ * <p>
+ * Instead of every NPC querying the entity tracker, the engine walks each player's surrounding chunks in
+ * the instance's NPC grid and keeps the closest player per NPC by squared distance, so the cost grows with
+ * the number of player-NPC pairs in range.
+ * <p>
+ * Rotations are only sent when they moved past the NPC's look threshold, and no more often than its look
+ * rate allows, so idle NPCs facing idle players send nothing.
+ * <p>
+ * NPCs in {@link LookMode#PER_VIEWER} mode get rotation packets aimed at each viewer in range instead. Their
+ * rotation is computed once per block a viewer stands in, and their server-side rotation is never changed.
+ * <p>
+ * NPCs far from every player only turn on the ticks their {@link NPC#getTickInterval() tick interval} allows.
+ */
+public class LookAtEngine {
+    static final double PLAYER_EYE_HEIGHT = 1.62;
+
+    private final InstanceNPCs npcs;
+    private volatile double maxLookRange;
+    private long tick;
+
+    private final Reference2ObjectOpenHashMap<LookingNPC, LookState> states = new Reference2ObjectOpenHashMap<>();
+    private final Reference2ObjectOpenHashMap<LookingNPC, ViewerLooks> viewerLooks = new Reference2ObjectOpenHashMap<>();
+    private final ConcurrentLinkedQueue<LookingNPC> forgotten = new ConcurrentLinkedQueue<>();
+
+    private final Reference2IntOpenHashMap<LookingNPC> slots = new Reference2IntOpenHashMap<>();
+    private LookingNPC[] lookers = new LookingNPC[16];
+    private double[] closestDistance = new double[16];
+    private Pos[] closestTarget = new Pos[16];
+
+    LookAtEngine(@NotNull InstanceNPCs npcs) {
+        this.npcs = npcs;
+        this.slots.defaultReturnValue(-1);
+    }
+
+    /**
+     * Makes sure the engine searches far enough for an NPC's look range.
+     * @param npc The NPC
+     */
+    void track(@NotNull LookingNPC npc) {
+        double range = Math.sqrt(npc.getLookRangeSquared());
+        synchronized (this) {
+            if (range > maxLookRange) {
+                maxLookRange = range;
+            }
+        }
+    }
+
+    /**
+     * Drops the rotation state of an NPC that left the instance.
+     * @param npc The NPC
+     */
+    void forget(@NotNull LookingNPC npc) {
+        forgotten.add(npc);
+    }
+
+    void tick() {
+        tick++;
+        LookingNPC removed;
+        while ((removed = forgotten.poll()) != null) {
+            states.remove(removed);
+            viewerLooks.remove(removed);
+        }
+        Set<Player> players = npcs.getInstance().getPlayers();
+        double range = maxLookRange;
+        if ((players.isEmpty() && viewerLooks.isEmpty()) || range <= 0) {
+            return;
+        }
+        int count = 0;
+        for (Player player : players) {
+            Pos target = player.getPosition();
+            int minX = InstanceNPCs.chunkCoordinate(target.x() - range);
+            int maxX = InstanceNPCs.chunkCoordinate(target.x() + range);
+            int minZ = InstanceNPCs.chunkCoordinate(target.z() - range);
+            int maxZ = InstanceNPCs.chunkCoordinate(target.z() + range);
+            for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+                for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++) {
+                    for (NPC npc : npcs.getChunkBucket(chunkX, chunkZ)) {
+                        if (!(npc instanceof LookingNPC looking) || !looking.looksAtPlayers()
+                            || !ProximityTracker.isDue(looking.getEntityId(), tick, looking.getTickInterval())
+                            || npcs.getProximity().isDormant(looking)) {
+                            continue;
+                        }
+                        double distance = npc.getPosition().distanceSquared(target);
+                        if (distance > looking.getLookRangeSquared()) {
+                            continue;
+                        }
+                        if (looking.getLookMode() == LookMode.PER_VIEWER) {
+                            if (looking.getViewers().contains(player)) {
+                                ViewerLooks looks = viewerLooks.get(looking);
+                                if (looks == null) {
+                                    looks = new ViewerLooks();
+                                    viewerLooks.put(looking, looks);
+                                }
+                                looks.look(looking, player, target, tick);
+                            }
+                            continue;
+                        }
+                        int slot = slots.getInt(looking);
+                        if (slot == -1) {
+                            slot = count++;
+                            ensureCapacity(count);
+                            slots.put(looking, slot);
+                            lookers[slot] = looking;
+                            closestDistance[slot] = distance;
+                            closestTarget[slot] = target;
+                        } else if (distance < closestDistance[slot]) {
+                            closestDistance[slot] = distance;
+                            closestTarget[slot] = target;
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            LookingNPC looking = lookers[i];
+            Pos position = looking.getPosition();
+            Pos target = closestTarget[i];
+            float yaw = yaw(position, target);
+            float pitch = pitch(position, target);
+            LookState state = states.get(looking);
+            if (state == null) {
+                state = new LookState();
+                states.put(looking, state);
+            }
+            if (state.shouldSend(yaw, pitch, looking.getLookThreshold(), looking.getLookRate(), tick)) {
+                looking.setView(yaw, pitch);
+            }
+        }
+        var iterator = viewerLooks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            LookingNPC looking = entry.getKey();
+            if (!ProximityTracker.isDue(looking.getEntityId(), tick, looking.getTickInterval())) {
+                // Not updated this tick, so its viewers were not looked for either
+                continue;
+            }
+            if (entry.getValue().finish(looking, tick)) {
+                iterator.remove();
+            }
+        }
+        slots.clear();
+        Arrays.fill(lookers, 0, count, null);
+        Arrays.fill(closestTarget, 0, count, null);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= lookers.length) {
+            return;
+        }
+        int capacity = Math.max(size, lookers.length * 2);
+        lookers = Arrays.copyOf(lookers, capacity);
+        closestDistance = Arrays.copyOf(closestDistance, capacity);
+        closestTarget = Arrays.copyOf(closestTarget, capacity);
+    }
+
+    /**
+     * Gets the smallest difference between two angles.
+     * @param a The first angle in degrees
+     * @param b The second angle in degrees
+     * @return The absolute difference in degrees, between 0 and 180
+     */
+    static float angleDifference(float a, float b) {
+        float difference = Math.abs(a - b) % 360;
+        return difference > 180 ? 360 - difference : difference;
+    }
+
+    /**
+     * Gets the yaw an NPC at one position needs to face another position.
+     * @param from The position of the NPC
+     * @param to The position to look at
+     * @return The yaw in degrees
+     */
+    static float yaw(@NotNull Pos from, @NotNull Pos to) {
+        double dx = to.x() - from.x();
+        double dz = to.z() - from.z();
+        return (float) Math.toDegrees(Math.atan2(-dx, dz));
+    }
+
+    /**
+     * Gets the pitch an NPC at one position needs to face another position from its eyes.
+     * @param from The position of the NPC
+     * @param to The position to look at
+     * @return The pitch in degrees
+     */
+    static float pitch(@NotNull Pos from, @NotNull Pos to) {
+        double dx = to.x() - from.x();
+        double dy = to.y() - (from.y() + PLAYER_EYE_HEIGHT);
+        double dz = to.z() - from.z();
+        return (float) Math.toDegrees(-Math.atan2(dy, Math.sqrt(dx * dx + dz * dz)));
+    }
+
+    /**
+     * The last rotation sent for an NPC.
+     */
+    private static final class LookState {
+        private float yaw;
+        private float pitch;
+        private long tick = Long.MIN_VALUE;
+
+        private boolean shouldSend(float yaw, float pitch, float threshold, int rate, long now) {
+            if (this.tick != Long.MIN_VALUE) {
+                if (angleDifference(yaw, this.yaw) < threshold && angleDifference(pitch, this.pitch) < threshold) {
+                    return false;
+                }
+                long interval = rate <= 0 ? 1 : Math.max(1, (MinecraftServer.TICK_PER_SECOND + rate - 1) / rate);
+                if (now - this.tick < interval) {
+                    return false;
+                }
+            }
+            this.yaw = yaw;
+            this.pitch = pitch;
+            this.tick = now;
+            return true;
+        }
+    }
+
+    /**
+     * The rotations sent to each viewer of a {@link LookMode#PER_VIEWER} NPC.
+     */
+    private static final class ViewerLooks {
+        private final Int2ObjectOpenHashMap<ViewerLook> viewers = new Int2ObjectOpenHashMap<>();
+        private final Long2LongOpenHashMap rotationsByBlock = new Long2LongOpenHashMap();
+
+        private void look(LookingNPC npc, Player player, Pos target, long tick) {
+            long block = blockIndex(target);
+            float yaw;
+            float pitch;
+            if (rotationsByBlock.containsKey(block)) {
+                long rotation = rotationsByBlock.get(block);
+                yaw = Float.intBitsToFloat((int) (rotation >>> 32));
+                pitch = Float.intBitsToFloat((int) rotation);
+            } else {
+                Pos position = npc.getPosition();
+                yaw = yaw(position, target);
+                pitch = pitch(position, target);
+                rotationsByBlock.put(block, ((long) Float.floatToRawIntBits(yaw) << 32) | (Float.floatToRawIntBits(pitch) & 0xFFFFFFFFL));
+            }
+            ViewerLook look = viewers.get(player.getEntityId());
+            if (look == null) {
+                look = new ViewerLook(player);
+                viewers.put(player.getEntityId(), look);
+            }
+            look.seen = tick;
+            if (look.state.shouldSend(yaw, pitch, npc.getLookThreshold(), npc.getLookRate(), tick)) {
+                sendRotation(player, npc.getEntityId(), yaw, pitch);
+            }
+        }
+
+        /**
+         * Turns the NPC back to its own rotation for viewers that left its range this tick.
+         * @return Whether no viewer is left
+         */
+        private boolean finish(LookingNPC npc, long tick) {
+            rotationsByBlock.clear();
+            var iterator = viewers.values().iterator();
+            while (iterator.hasNext()) {
+                ViewerLook look = iterator.next();
+                if (look.seen == tick) {
+                    continue;
+                }
+                if (npc.getViewers().contains(look.player)) {
+                    Pos position = npc.getPosition();
+                    sendRotation(look.player, npc.getEntityId(), position.yaw(), position.pitch());
+                }
+                iterator.remove();
+            }
+            return viewers.isEmpty();
+        }
+
+        private static void sendRotation(Player player, int entityId, float yaw, float pitch) {
+            player.sendPacket(new EntityRotationPacket(entityId, yaw, pitch, true));
+            player.sendPacket(new EntityHeadLookPacket(entityId, yaw));
+        }
+
+        private static long blockIndex(Pos position) {
+            return ((long) (position.blockX() & 0x3FFFFFF) << 38)
+                | ((long) (position.blockZ() & 0x3FFFFFF) << 12)
+                | (position.blockY() & 0xFFF);
+        }
+    }
+
+    private static final class ViewerLook {
+        private final Player player;
+        private final LookState state = new LookState();
+        private long seen;
+
+        private ViewerLook(Player player) {
+            this.player = player;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * How an NPC that looks at players picks what to face.
+ */
+public enum LookMode {
+    /**
+     * The NPC turns towards the closest player, and every viewer sees the same rotation.
+     */
+    CLOSEST,
+    /**
+     * Every viewer in range sees the NPC facing them. The NPC's own rotation is left untouched.
+     */
+    PER_VIEWER
+}
@@ -0,0 +1,17 @@
+import net.minestom.server.entity.Player;
+
+import java.util.Set;
+
+/**
+ * An NPC that can turn its head towards nearby players.
+ */
+public interface LookingNPC extends NPC {
+    boolean looksAtPlayers();
+    long getLookRangeSquared();
+    float getLookThreshold();
+    int getLookRate();
+    LookMode getLookMode();
+    int getEntityId();
+    Set<Player> getViewers();
+    void setView(float yaw, float pitch);
+}
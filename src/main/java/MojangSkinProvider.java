@@ -0,0 +1,37 @@
+import net.minestom.server.entity.PlayerSkin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Fetches signed skins from Mojang, by UUID or by username.
+ */
+public class MojangSkinProvider implements SkinProvider {
+    private final Executor executor;
+
+    /**
+     * Creates a provider that runs its blocking requests on an executor.
+     * @param executor The executor to request skins on
+     */
+    public MojangSkinProvider(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<PlayerSkin> fetch(@NotNull String reference) {
+        return CompletableFuture.supplyAsync(() -> isUuid(reference)
+            ? PlayerSkin.fromUuid(reference)
+            : PlayerSkin.fromUsername(reference), executor);
+    }
+
+    private static boolean isUuid(String reference) {
+        try {
+            UUID.fromString(reference);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -1,21 +1,63 @@
+import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.Player;
 import net.minestom.server.entity.PlayerSkin;
 import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.server.SendablePacket;
 import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
 
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 public interface NPC {
-    String getSkinSignature();
-    String getSkinValue();
-    void setSkin(String skinSignature, String skinValue);
-    void setSkin(PlayerSkin skin);
+    /**
+     * Gets the skin signature of the NPC.
+     * @return The skin signature
+     */
+    default String getSkinSignature() {
+        return getSkin().signature();
+    }
+
+    /**
+     * Gets the skin value of the NPC.
+     * @return The skin value
+     */
+    default String getSkinValue() {
+        return getSkin().value();
+    }
+
+    /**
+     * Sets the skin of the NPC.
+     * @param skinValue The skin value
+     * @param skinSignature The skin signature
+     */
+    default void setSkin(String skinValue, String skinSignature) {
+        setSkin(AuriNPC.getInstance().getSkinRegistry().get(skinValue, skinSignature));
+    }
+
+    /**
+     * Sets the skin of the NPC.
+     * @param skin The skin
+     */
+    default void setSkin(PlayerSkin skin) {
+        setSkin(skin.textures(), skin.signature());
+    }
+
+    Skin getSkin();
+    void setSkin(Skin skin);
     boolean isListed();
     void setListed(boolean listed);
     CompletableFuture<Void> setInstance(Instance instance);
     boolean addViewer(Player player);
     boolean removeViewer(Player player);
+    Set<Player> getViewers();
     Instance getInstance();
+    boolean isRemoved();
+    int getTickInterval();
+    void setTickInterval(int tickInterval);
+    UUID getUuid();
+    Pos getPosition();
     PlayerInfoUpdatePacket getPlayerInfoUpdatePacket();
+    SendablePacket getCachedPlayerInfoUpdatePacket();
     void remakeInfoUpdatePacket();
 }
\ No newline at end of file
@@ -0,0 +1,361 @@
+import net.kyori.adventure.text.Component;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * The options an NPC is built from, without the instance it is spawned in, so NPCs can be saved to and
+ * loaded from an {@link NPCStore}. The instance is named by a key the loader resolves.
+ */
+public final class NPCDefinition {
+    final Type type;
+    final UUID uuid;
+    final String instance;
+    final Pos position;
+    final Component customName;
+    final Skin skin;
+    final String skinReference;
+    final boolean listed;
+    final boolean lookAtPlayers;
+    final long lookRange;
+    final float lookThreshold;
+    final int lookRate;
+    final LookMode lookMode;
+    final double maxHealth;
+    final float health;
+    final boolean invulnerable;
+    final boolean respawns;
+    final long respawnDelay;
+    final double movementSpeed;
+
+    private NPCDefinition(Builder builder) {
+        this.type = builder.type;
+        this.uuid = builder.uuid;
+        this.instance = builder.instance;
+        this.position = builder.position;
+        this.customName = builder.customName;
+        this.skin = builder.skin;
+        this.skinReference = builder.skinReference;
+        this.listed = builder.listed;
+        this.lookAtPlayers = builder.lookAtPlayers;
+        this.lookRange = builder.lookRange;
+        this.lookThreshold = builder.lookThreshold;
+        this.lookRate = builder.lookRate;
+        this.lookMode = builder.lookMode;
+        this.maxHealth = builder.maxHealth;
+        this.health = builder.health;
+        this.invulnerable = builder.invulnerable;
+        this.respawns = builder.respawns;
+        this.respawnDelay = builder.respawnDelay;
+        this.movementSpeed = builder.movementSpeed;
+    }
+
+    /**
+     * Builds the NPC through the builder of its type, which spawns it.
+     * @param instance The instance the key of the definition resolves to
+     * @return The NPC
+     */
+    public @NotNull NPC build(@NotNull Instance instance) {
+        return switch (type) {
+            case STATIC -> {
+                StaticNPC.Builder builder = new StaticNPC.Builder(uuid, instance, position)
+                    .customName(customName)
+                    .skin(skin)
+                    .listed(listed)
+                    .lookAtPlayers(lookAtPlayers)
+                    .lookRange(lookRange)
+                    .lookThreshold(lookThreshold)
+                    .lookRate(lookRate)
+                    .lookMode(lookMode);
+                if (skinReference != null) {
+                    builder.skinFrom(skinReference);
+                }
+                yield builder.build();
+            }
+            case LIVING_STATIC -> {
+                LivingStaticNPC.Builder builder = new LivingStaticNPC.Builder(uuid, instance, position, maxHealth)
+                    .customName(customName)
+                    .skin(skin)
+                    .listed(listed)
+                    .lookAtPlayers(lookAtPlayers)
+                    .lookRange(lookRange)
+                    .lookThreshold(lookThreshold)
+                    .lookRate(lookRate)
+                    .lookMode(lookMode)
+                    .health(health)
+                    .invulnerable(invulnerable)
+                    .respawns(respawns)
+                    .respawnDelay(respawnDelay);
+                if (skinReference != null) {
+                    builder.skinFrom(skinReference);
+                }
+                yield builder.build();
+            }
+            case NAVIGATIONAL -> {
+                NavigationalNPC.Builder builder = new NavigationalNPC.Builder(uuid, instance, position, maxHealth)
+                    .customName(customName)
+                    .skin(skin)
+                    .listed(listed)
+                    .health(health)
+                    .invulnerable(invulnerable)
+                    .respawns(respawns)
+                    .respawnDelay(respawnDelay)
+                    .movementSpeed(movementSpeed);
+                if (skinReference != null) {
+                    builder.skinFrom(skinReference);
+                }
+                yield builder.build();
+            }
+        };
+    }
+
+    /**
+     * Gets the kind of NPC the definition builds.
+     * @return The type
+     */
+    public @NotNull Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the UUID of the NPC.
+     * @return The UUID
+     */
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Gets the key of the instance the NPC is spawned in.
+     * @return The instance key
+     */
+    public @NotNull String getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the position of the NPC.
+     * @return The position
+     */
+    public @NotNull Pos getPosition() {
+        return position;
+    }
+
+    /**
+     * The kinds of NPCs a definition can build.
+     */
+    public enum Type {
+        /**
+         * A {@link StaticNPC}.
+         */
+        STATIC,
+        /**
+         * A {@link LivingStaticNPC}.
+         */
+        LIVING_STATIC,
+        /**
+         * A {@link NavigationalNPC}.
+         */
+        NAVIGATIONAL
+    }
+
+    public static class Builder {
+        // Required parameters
+        private final Type type;
+        private final UUID uuid;
+        private final String instance;
+        private final Pos position;
+
+        // Optional parameters, with the defaults of the NPC builders
+        private Component customName = Component.text("NPC");
+        private Skin skin = Skin.EMPTY;
+        private String skinReference;
+        private boolean listed = true;
+        private boolean lookAtPlayers = true;
+        private long lookRange = 10;
+        private float lookThreshold = 1;
+        private int lookRate = 20;
+        private LookMode lookMode = LookMode.CLOSEST;
+        private double maxHealth = 20;
+        private float health = 1;
+        private boolean invulnerable = false;
+        private boolean respawns = false;
+        private long respawnDelay = 0;
+        private double movementSpeed = 0.1;
+
+        /**
+         * Creates a new {@link NPCDefinition} builder. Options that do not apply to the type are ignored.
+         * @param type The kind of NPC
+         * @param uuid The UUID of the NPC
+         * @param instance The key of the instance the NPC will be in
+         * @param position The position of the NPC
+         */
+        public Builder(@NotNull Type type, @NotNull UUID uuid, @NotNull String instance, @NotNull Pos position) {
+            this.type = type;
+            this.uuid = uuid;
+            this.instance = instance;
+            this.position = position;
+        }
+
+        /**
+         * Builds the definition with the chosen options.
+         * @return The definition
+         */
+        public NPCDefinition build() {
+            return new NPCDefinition(this);
+        }
+
+        /**
+         * Sets the custom name of the NPC.
+         * @param customName The custom name
+         * @return The builder
+         */
+        public NPCDefinition.Builder customName(@NotNull Component customName) {
+            this.customName = customName;
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC.
+         * @param skin The skin
+         * @return The builder
+         */
+        public NPCDefinition.Builder skin(@NotNull Skin skin) {
+            this.skin = skin;
+            return this;
+        }
+
+        /**
+         * Sets the reference of the skin the NPC gets once the {@link SkinResolver} resolved it.
+         * @param reference The reference of the skin, or null to keep the set skin
+         * @return The builder
+         */
+        public NPCDefinition.Builder skinFrom(@Nullable String reference) {
+            this.skinReference = reference;
+            return this;
+        }
+
+        /**
+         * Sets whether the NPC should be listed in the tab list.
+         * @param listed Whether the NPC should be listed
+         * @return The builder
+         */
+        public NPCDefinition.Builder listed(boolean listed) {
+            this.listed = listed;
+            return this;
+        }
+
+        /**
+         * Sets whether the NPC should look at players. Applies to static and living NPCs.
+         * @param lookAtPlayers Whether the NPC should look at players
+         * @return The builder
+         */
+        public NPCDefinition.Builder lookAtPlayers(boolean lookAtPlayers) {
+            this.lookAtPlayers = lookAtPlayers;
+            return this;
+        }
+
+        /**
+         * Sets the range within which the NPC looks at players. Applies to static and living NPCs.
+         * @param lookRange The look range
+         * @return The builder
+         */
+        public NPCDefinition.Builder lookRange(long lookRange) {
+            this.lookRange = lookRange;
+            return this;
+        }
+
+        /**
+         * Sets the angle the NPC's rotation has to change by before it is sent. Applies to static and living NPCs.
+         * @param lookThreshold The look threshold in degrees
+         * @return The builder
+         */
+        public NPCDefinition.Builder lookThreshold(float lookThreshold) {
+            this.lookThreshold = lookThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the number of rotation updates per second the NPC sends at most. Applies to static and living NPCs.
+         * @param lookRate The look rate
+         * @return The builder
+         */
+        public NPCDefinition.Builder lookRate(int lookRate) {
+            this.lookRate = lookRate;
+            return this;
+        }
+
+        /**
+         * Sets who the NPC looks at. Applies to static and living NPCs.
+         * @param lookMode The look mode
+         * @return The builder
+         */
+        public NPCDefinition.Builder lookMode(@NotNull LookMode lookMode) {
+            this.lookMode = lookMode;
+            return this;
+        }
+
+        /**
+         * Sets the maximum health of the NPC. Applies to living and navigational NPCs.
+         * @param maxHealth The maximum health
+         * @return The builder
+         */
+        public NPCDefinition.Builder maxHealth(double maxHealth) {
+            this.maxHealth = maxHealth;
+            return this;
+        }
+
+        /**
+         * Sets the health of the NPC. Applies to living and navigational NPCs.
+         * @param health The health
+         * @return The builder
+         */
+        public NPCDefinition.Builder health(float health) {
+            this.health = health;
+            return this;
+        }
+
+        /**
+         * Sets whether the NPC is invulnerable. Applies to living and navigational NPCs.
+         * @param invulnerable Whether the NPC is invulnerable
+         * @return The builder
+         */
+        public NPCDefinition.Builder invulnerable(boolean invulnerable) {
+            this.invulnerable = invulnerable;
+            return this;
+        }
+
+        /**
+         * Sets whether the NPC respawns after dying. Applies to living and navigational NPCs.
+         * @param respawns Whether the NPC respawns
+         * @return The builder
+         */
+        public NPCDefinition.Builder respawns(boolean respawns) {
+            this.respawns = respawns;
+            return this;
+        }
+
+        /**
+         * Sets the delay before the NPC respawns. Applies to living and navigational NPCs.
+         * @param respawnDelay The respawn delay in milliseconds
+         * @return The builder
+         */
+        public NPCDefinition.Builder respawnDelay(long respawnDelay) {
+            this.respawnDelay = respawnDelay;
+            return this;
+        }
+
+        /**
+         * Sets the speed the NPC walks at. Applies to navigational NPCs.
+         * @param movementSpeed The movement speed in blocks per tick
+         * @return The builder
+         */
+        public NPCDefinition.Builder movementSpeed(double movementSpeed) {
+            this.movementSpeed = movementSpeed;
+            return this;
+        }
+    }
+}
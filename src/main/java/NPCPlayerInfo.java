@@ -0,0 +1,181 @@
+import net.kyori.adventure.text.Component;
+import net.minestom.server.entity.GameMode;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.server.CachedPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
+import net.minestom.server.network.packet.server.play.PlayerInfoRemovePacket;
+import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * The player info entry of an NPC: its skin, whether it is listed, and the cached packet that adds it.
+ * <p>
+ * Clients keep the first entry they get for a UUID and draw a player entity with the skin it had when it
+ * spawned. A changed entry is therefore sent by removing the old one first, and viewers get the entity
+ * destroyed and spawned again so they see the new skin.
+ */
+final class NPCPlayerInfo {
+    private static final int MAX_PROFILE_NAME_LENGTH = 16;
+
+    private final NPC npc;
+    private final Supplier<Component> customName;
+    private volatile Skin skin;
+    private volatile boolean listed;
+    private volatile PlayerInfoUpdatePacket packet;
+    private final CachedPacket cachedPacket = new CachedPacket(this::getPacket);
+
+    /**
+     * Creates the entry of an NPC. The NPC's UUID must already be set.
+     * @param npc The NPC
+     * @param customName The custom name of the NPC, shown in the player list
+     * @param skin The skin
+     * @param listed Whether the NPC is listed in the player list
+     */
+    NPCPlayerInfo(@NotNull NPC npc, @NotNull Supplier<Component> customName, @NotNull Skin skin, boolean listed) {
+        this.npc = npc;
+        this.customName = customName;
+        this.skin = skin;
+        this.listed = listed;
+        this.packet = createPacket();
+    }
+
+    /**
+     * Gets the profile name of an NPC. Clients reject names over 16 characters, so the custom name, which
+     * is shown instead, is not used.
+     * @param uuid The UUID of the NPC
+     * @return The profile name
+     */
+    static @NotNull String profileName(@NotNull UUID uuid) {
+        return ("npc_" + uuid.toString().replace("-", "")).substring(0, MAX_PROFILE_NAME_LENGTH);
+    }
+
+    private PlayerInfoUpdatePacket createPacket() {
+        Component customName = this.customName.get();
+        return new PlayerInfoUpdatePacket(
+            PlayerInfoUpdatePacket.Action.ADD_PLAYER,
+            new PlayerInfoUpdatePacket.Entry(
+                npc.getUuid(),
+                profileName(npc.getUuid()),
+                skin.properties(),
+                listed,
+                0,
+                GameMode.CREATIVE,
+                customName,
+                null,
+                0
+            )
+        );
+    }
+
+    /**
+     * Gets the player info packet of the NPC.
+     * @return The player info packet
+     */
+    @NotNull PlayerInfoUpdatePacket getPacket() {
+        return packet;
+    }
+
+    /**
+     * Gets the player info packet of the NPC, encoded once and reused for every player it is sent to.
+     * @return The cached player info packet
+     */
+    @NotNull SendablePacket getCachedPacket() {
+        return cachedPacket;
+    }
+
+    /**
+     * Gets the skin of the NPC.
+     * @return The skin
+     */
+    @NotNull Skin getSkin() {
+        return skin;
+    }
+
+    /**
+     * Sets the skin of the NPC and sends the new entry to the players of its instance.
+     * @param skin The skin
+     */
+    void setSkin(@NotNull Skin skin) {
+        this.skin = skin;
+        refresh();
+    }
+
+    /**
+     * Gets whether the NPC is listed in the player list.
+     * @return Whether the NPC is listed
+     */
+    boolean isListed() {
+        return listed;
+    }
+
+    /**
+     * Sets whether the NPC is listed in the player list and sends the new entry to the players of its instance.
+     * @param listed Whether the NPC is listed
+     */
+    void setListed(boolean listed) {
+        this.listed = listed;
+        refresh();
+    }
+
+    /**
+     * Sets the skin without sending the entry anywhere, for an NPC that is about to be shown under a new UUID.
+     * @param skin The skin
+     */
+    void reset(@NotNull Skin skin) {
+        this.skin = skin;
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the entry from the NPC's current UUID and name, without sending it.
+     */
+    void rebuild() {
+        this.packet = createPacket();
+        cachedPacket.invalidate();
+        AuriNPC.getInstance().getNPCs().playerInfoChanged(npc);
+    }
+
+    /**
+     * Rebuilds the entry and replaces the old one on the clients of every player in the NPC's instance.
+     */
+    void refresh() {
+        rebuild();
+        Instance instance = npc.getInstance();
+        if (instance == null) {
+            return;
+        }
+        PlayerInfoTracker tracker = AuriNPC.getInstance().getPlayerInfoTracker();
+        Set<Player> viewers = Set.copyOf(npc.getViewers());
+        PlayerInfoRemovePacket removePacket = new PlayerInfoRemovePacket(npc.getUuid());
+        for (Player player : instance.getPlayers()) {
+            boolean viewing = viewers.contains(player);
+            if (viewing) {
+                npc.removeViewer(player);
+            }
+            if (tracker.forget(player, npc)) {
+                player.sendPacket(removePacket);
+            }
+            if (viewing) {
+                // Sends the new entry before spawning the entity again
+                npc.addViewer(player);
+            } else {
+                sendTo(player);
+            }
+        }
+    }
+
+    /**
+     * Sends the entry to a player, unless they already hold it.
+     * @param player The player
+     */
+    void sendTo(@NotNull Player player) {
+        if (AuriNPC.getInstance().getPlayerInfoTracker().markSent(player, npc)) {
+            player.sendPacket(cachedPacket);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import net.kyori.adventure.text.Component;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Keeps despawned NPCs around to spawn them again as new NPCs, so waves of short-lived NPCs do not create
+ * an entity, its metadata and its packets every time.
+ * <p>
+ * A spawn reuses an idle NPC when there is one and creates a new one through the pool's factory otherwise.
+ * Released NPCs are despawned and kept until the pool holds its capacity, after which they are removed.
+ * Every method may be called from any thread.
+ * @param <T> The type of NPC in the pool
+ */
+public class NPCPool<T extends PooledNPC> {
+    private final Factory<T> factory;
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int capacity;
+
+    /**
+     * Creates a pool.
+     * @param capacity The maximum number of idle NPCs kept
+     * @param factory The factory creating NPCs when no idle one is left
+     */
+    public NPCPool(int capacity, @NotNull Factory<T> factory) {
+        this.capacity = Math.max(0, capacity);
+        this.factory = factory;
+    }
+
+    /**
+     * Spawns an NPC, reusing an idle one if possible.
+     * @param instance The instance to spawn in
+     * @param position The position to spawn at
+     * @param customName The name of the NPC
+     * @param skin The skin of the NPC
+     * @param interactListener The listener for interactions with the NPC
+     * @return The spawned NPC
+     */
+    public @NotNull T spawn(@NotNull Instance instance, @NotNull Pos position, @NotNull Component customName,
+                            @NotNull Skin skin, @NotNull Consumer<ClientInteractEntityPacket> interactListener) {
+        T npc = idle.poll();
+        if (npc == null) {
+            misses.increment();
+            return factory.create(instance, position, customName, skin, interactListener);
+        }
+        idleCount.decrementAndGet();
+        hits.increment();
+        npc.respawn(instance, position, customName, skin, interactListener);
+        return npc;
+    }
+
+    /**
+     * Despawns an NPC and keeps it for a later spawn, or removes it if the pool is full.
+     * @param npc The NPC
+     */
+    public void release(@NotNull T npc) {
+        if (npc.isRemoved() || npc.isDespawned()) {
+            return;
+        }
+        npc.despawn();
+        if (idleCount.incrementAndGet() > capacity) {
+            idleCount.decrementAndGet();
+            npc.remove();
+            return;
+        }
+        idle.add(npc);
+    }
+
+    /**
+     * Removes every idle NPC.
+     */
+    public void clear() {
+        T npc;
+        while ((npc = idle.poll()) != null) {
+            idleCount.decrementAndGet();
+            npc.remove();
+        }
+    }
+
+    /**
+     * Gets the maximum number of idle NPCs kept.
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum number of idle NPCs kept, removing idle NPCs above it.
+     * @param capacity The capacity
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = Math.max(0, capacity);
+        T npc;
+        while (idleCount.get() > this.capacity && (npc = idle.poll()) != null) {
+            idleCount.decrementAndGet();
+            npc.remove();
+        }
+    }
+
+    /**
+     * Gets the number of idle NPCs.
+     * @return The number of idle NPCs
+     */
+    public int getIdle() {
+        return idleCount.get();
+    }
+
+    /**
+     * Gets the number of spawns that reused an idle NPC.
+     * @return The number of pool hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of spawns that had to create an NPC.
+     * @return The number of pool misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Creates the NPCs of a pool.
+     * @param <T> The type of NPC
+     */
+    @FunctionalInterface
+    public interface Factory<T extends PooledNPC> {
+        /**
+         * Creates and spawns an NPC.
+         * @param instance The instance to spawn in
+         * @param position The position to spawn at
+         * @param customName The name of the NPC
+         * @param skin The skin of the NPC
+         * @param interactListener The listener for interactions with the NPC
+         * @return The NPC
+         */
+        @NotNull T create(@NotNull Instance instance, @NotNull Pos position, @NotNull Component customName,
+                          @NotNull Skin skin, @NotNull Consumer<ClientInteractEntityPacket> interactListener);
+    }
+}
@@ -0,0 +1,211 @@
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.entity.Player;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks NPCs by instance and by chunk, so that lookups only touch the NPCs that are relevant.
+ * <p>
+ * NPCs can be added and removed from any thread, and every lookup can be iterated while that happens.
+ */
+public class NPCRegistry implements Iterable<NPC> {
+    private final ConcurrentHashMap<Instance, InstanceNPCs> instances = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<NPC, InstanceNPCs> locations = new ConcurrentHashMap<>();
+    private final NPCTickGroups tickGroups;
+
+    NPCRegistry(@NotNull NPCTickGroups tickGroups) {
+        this.tickGroups = tickGroups;
+    }
+
+    /**
+     * Adds an NPC to the instance it is currently in, moving it out of the one it was tracked in before.
+     * @param npc The NPC
+     * @return The instance the NPC was tracked in before, or null if it was not tracked or did not move
+     */
+    @Nullable Instance add(@NotNull NPC npc) {
+        Instance instance = npc.getInstance();
+        InstanceNPCs target = getOrCreateInstanceNPCs(instance);
+        Instance[] previous = {null};
+        locations.compute(npc, (key, current) -> {
+            if (current == target) {
+                return current;
+            }
+            if (current != null) {
+                current.remove(npc);
+                previous[0] = current.getInstance();
+            }
+            target.add(npc);
+            return target;
+        });
+        if (instances.get(instance) != target) {
+            // The instance was dropped in between, and its NPCs may have been walked before this one was added,
+            // so nothing would ever tick or show it there
+            if (locations.remove(npc, target)) {
+                target.remove(npc);
+            }
+        }
+        return previous[0];
+    }
+
+    /**
+     * Gets the NPCs of an instance, tracking the instance if it was not yet.
+     * @param instance The instance
+     * @return The NPCs of the instance
+     */
+    @NotNull InstanceNPCs getOrCreateInstanceNPCs(@NotNull Instance instance) {
+        InstanceNPCs npcs = instances.get(instance);
+        if (npcs != null) {
+            return npcs;
+        }
+        return instances.computeIfAbsent(instance, key -> {
+            InstanceNPCs created = new InstanceNPCs(key);
+            tickGroups.add(created);
+            return created;
+        });
+    }
+
+    /**
+     * Removes an NPC from the registry.
+     * @param npc The NPC
+     * @return The instance the NPC was tracked in, or null if it was not tracked
+     */
+    @Nullable Instance remove(@NotNull NPC npc) {
+        Instance[] previous = {null};
+        locations.computeIfPresent(npc, (key, current) -> {
+            current.remove(npc);
+            previous[0] = current.getInstance();
+            return null;
+        });
+        return previous[0];
+    }
+
+    /**
+     * Drops everything tracked for an instance.
+     * @param instance The instance
+     */
+    void removeInstance(@NotNull Instance instance) {
+        InstanceNPCs npcs = instances.remove(instance);
+        if (npcs != null) {
+            tickGroups.remove(npcs);
+            npcs.getNPCs().forEach(npc -> locations.remove(npc, npcs));
+        }
+    }
+
+    /**
+     * Removes a player as viewer of the NPCs of every instance, usually because they left their instance.
+     * @param player The player
+     */
+    void forgetPlayer(@NotNull Player player) {
+        for (InstanceNPCs npcs : instances.values()) {
+            npcs.getProximity().forgetPlayer(player);
+        }
+    }
+
+    /**
+     * Moves an NPC to the chunk bucket matching its current position.
+     * @param npc The NPC that moved
+     */
+    public void update(@NotNull NPC npc) {
+        // Look the group up by instance, so NPC ticks only read the instance table, which rarely changes
+        Instance instance = npc.getInstance();
+        InstanceNPCs npcs = instance == null ? null : instances.get(instance);
+        if (npcs != null) {
+            npcs.update(npc);
+        }
+    }
+
+    /**
+     * Makes the look-at pass of an NPC's instance search far enough for its new look range.
+     * @param npc The NPC whose look range changed
+     */
+    void lookRangeChanged(@NotNull LookingNPC npc) {
+        Instance instance = npc.getInstance();
+        InstanceNPCs npcs = instance == null ? null : instances.get(instance);
+        if (npcs != null) {
+            npcs.lookRangeChanged(npc);
+        }
+    }
+
+    /**
+     * Drops the merged player info packets of the instance an NPC is in, after its entry changed.
+     * @param npc The NPC whose entry changed
+     */
+    public void playerInfoChanged(@NotNull NPC npc) {
+        InstanceNPCs npcs = locations.get(npc);
+        if (npcs != null) {
+            npcs.invalidatePlayerInfo();
+        }
+    }
+
+    /**
+     * Gets whether an NPC is tracked.
+     * @param npc The NPC
+     * @return Whether the NPC is tracked
+     */
+    public boolean contains(@NotNull NPC npc) {
+        return locations.containsKey(npc);
+    }
+
+    /**
+     * Gets the NPCs of an instance, indexed by chunk.
+     * @param instance The instance
+     * @return The NPCs of the instance, or null if it has none
+     */
+    public @Nullable InstanceNPCs getInstanceNPCs(@NotNull Instance instance) {
+        return instances.get(instance);
+    }
+
+    /**
+     * Gets all NPCs in an instance.
+     * @param instance The instance
+     * @return The NPCs in the instance
+     */
+    public Collection<NPC> getNPCs(@NotNull Instance instance) {
+        InstanceNPCs npcs = instances.get(instance);
+        return npcs == null ? List.of() : npcs.getNPCs();
+    }
+
+    /**
+     * Gets the NPCs in a chunk of an instance.
+     * @param instance The instance
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The NPCs in the chunk
+     */
+    public Collection<NPC> getNPCs(@NotNull Instance instance, int chunkX, int chunkZ) {
+        InstanceNPCs npcs = instances.get(instance);
+        return npcs == null ? List.of() : npcs.getNPCs(chunkX, chunkZ);
+    }
+
+    /**
+     * Gets the NPCs within a radius of a point in an instance.
+     * @param instance The instance
+     * @param center The center of the search
+     * @param radius The radius of the search
+     * @return The NPCs within the radius
+     */
+    public List<NPC> getNPCs(@NotNull Instance instance, @NotNull Point center, double radius) {
+        InstanceNPCs npcs = instances.get(instance);
+        return npcs == null ? List.of() : npcs.getNPCs(center, radius);
+    }
+
+    /**
+     * Gets the number of tracked NPCs.
+     * @return The number of tracked NPCs
+     */
+    public int size() {
+        return locations.size();
+    }
+
+    @Override
+    public @NotNull Iterator<NPC> iterator() {
+        return Collections.unmodifiableSet(locations.keySet()).iterator();
+    }
+}
@@ -0,0 +1,361 @@
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Saves {@link NPCDefinition}s to a compact binary file and spawns NPCs from it.
+ * <p>
+ * The file starts with a magic number and a format version, followed by a table of every distinct string
+ * (names as JSON components, instance keys, skin references and skin textures), a table of every distinct
+ * skin, and one fixed-layout record per NPC that refers to both tables by index. Loading maps the file into
+ * memory and walks the records with a {@link Reader}, which turns each into an {@link NPCDefinition} and
+ * builds it; each distinct name is deserialized and each distinct skin looked up once, however many NPCs
+ * share it.
+ */
+public final class NPCStore {
+    private static final int MAGIC = 0x414E5043; // "ANPC"
+    private static final int VERSION = 1;
+    private static final int NONE = -1;
+    private static final int LISTED = 1;
+    private static final int LOOK_AT_PLAYERS = 1 << 1;
+    private static final int INVULNERABLE = 1 << 2;
+    private static final int RESPAWNS = 1 << 3;
+    // Position, name, skin, skin reference and flags
+    private static final int RECORD_BYTES_AFTER_INSTANCE = 3 * Double.BYTES + 2 * Float.BYTES + 3 * Integer.BYTES + Byte.BYTES;
+    private static final int LOOK_BYTES = Long.BYTES + Float.BYTES + Integer.BYTES + Byte.BYTES;
+    private static final int HEALTH_BYTES = Double.BYTES + Float.BYTES + Long.BYTES;
+
+    private NPCStore() {
+    }
+
+    /**
+     * Writes definitions to a file, replacing it.
+     * @param file The file
+     * @param definitions The definitions
+     */
+    public static void write(@NotNull Path file, @NotNull Collection<NPCDefinition> definitions) {
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+        Map<Skin, Integer> skins = new HashMap<>();
+        List<Skin> skinTable = new ArrayList<>();
+        Function<String, Integer> intern = string -> strings.computeIfAbsent(string, key -> {
+            stringTable.add(key);
+            return stringTable.size() - 1;
+        });
+        // Intern everything first, so the tables can be written ahead of the records
+        for (NPCDefinition definition : definitions) {
+            intern.apply(definition.instance);
+            intern.apply(GsonComponentSerializer.gson().serialize(definition.customName));
+            if (definition.skinReference != null) {
+                intern.apply(definition.skinReference);
+            }
+            if (definition.skin != Skin.EMPTY && !skins.containsKey(definition.skin)) {
+                skins.put(definition.skin, skinTable.size());
+                skinTable.add(definition.skin);
+                intern.apply(definition.skin.value());
+                if (definition.skin.signature() != null) {
+                    intern.apply(definition.skin.signature());
+                }
+            }
+        }
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "npcs", ".tmp");
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                output.writeInt(MAGIC);
+                output.writeShort(VERSION);
+                output.writeInt(stringTable.size());
+                for (String string : stringTable) {
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    output.writeInt(bytes.length);
+                    output.write(bytes);
+                }
+                output.writeInt(skinTable.size());
+                for (Skin skin : skinTable) {
+                    output.writeInt(strings.get(skin.value()));
+                    output.writeInt(skin.signature() == null ? NONE : strings.get(skin.signature()));
+                }
+                output.writeInt(definitions.size());
+                for (NPCDefinition definition : definitions) {
+                    writeRecord(output, definition, strings, skins);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream output, NPCDefinition definition, Map<String, Integer> strings,
+                                    Map<Skin, Integer> skins) throws IOException {
+        output.writeByte(definition.type.ordinal());
+        output.writeLong(definition.uuid.getMostSignificantBits());
+        output.writeLong(definition.uuid.getLeastSignificantBits());
+        output.writeInt(strings.get(definition.instance));
+        Pos position = definition.position;
+        output.writeDouble(position.x());
+        output.writeDouble(position.y());
+        output.writeDouble(position.z());
+        output.writeFloat(position.yaw());
+        output.writeFloat(position.pitch());
+        output.writeInt(strings.get(GsonComponentSerializer.gson().serialize(definition.customName)));
+        output.writeInt(definition.skin == Skin.EMPTY ? NONE : skins.get(definition.skin));
+        output.writeInt(definition.skinReference == null ? NONE : strings.get(definition.skinReference));
+        int flags = (definition.listed ? LISTED : 0)
+            | (definition.lookAtPlayers ? LOOK_AT_PLAYERS : 0)
+            | (definition.invulnerable ? INVULNERABLE : 0)
+            | (definition.respawns ? RESPAWNS : 0);
+        output.writeByte(flags);
+        switch (definition.type) {
+            case STATIC -> writeLook(output, definition);
+            case LIVING_STATIC -> {
+                writeLook(output, definition);
+                writeHealth(output, definition);
+            }
+            case NAVIGATIONAL -> {
+                writeHealth(output, definition);
+                output.writeDouble(definition.movementSpeed);
+            }
+        }
+    }
+
+    private static void writeLook(DataOutputStream output, NPCDefinition definition) throws IOException {
+        output.writeLong(definition.lookRange);
+        output.writeFloat(definition.lookThreshold);
+        output.writeInt(definition.lookRate);
+        output.writeByte(definition.lookMode.ordinal());
+    }
+
+    private static void writeHealth(DataOutputStream output, NPCDefinition definition) throws IOException {
+        output.writeDouble(definition.maxHealth);
+        output.writeFloat(definition.health);
+        output.writeLong(definition.respawnDelay);
+    }
+
+    /**
+     * Opens a file for reading. Every instance key of the file is resolved first, and an unknown one fails
+     * with an {@link IllegalArgumentException} before any NPC is built. The reader must be called on a
+     * thread that may spawn NPCs.
+     * @param file The file
+     * @param instances Resolves the instance keys of the file to instances
+     * @return The reader, which should be closed once done
+     */
+    public static @NotNull Reader open(@NotNull Path file, @NotNull Function<String, Instance> instances) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Reader(buffer, instances);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Spawns every NPC of a file.
+     * @param file The file
+     * @param instances Resolves the instance keys of the file to instances
+     * @return The NPCs, in the order they were written
+     */
+    public static @NotNull List<NPC> load(@NotNull Path file, @NotNull Function<String, Instance> instances) {
+        try (Reader reader = open(file, instances)) {
+            List<NPC> npcs = new ArrayList<>(reader.size());
+            while (reader.hasNext()) {
+                npcs.add(reader.next());
+            }
+            return npcs;
+        }
+    }
+
+    /**
+     * Walks the records of a mapped file, building one NPC per record.
+     */
+    public static final class Reader implements AutoCloseable {
+        private final ByteBuffer buffer;
+        private final String[] strings;
+        private final Component[] names;
+        private final Map<String, Instance> resolvedInstances = new HashMap<>();
+        private final Skin[] skins;
+        private final int size;
+        private int read;
+
+        private Reader(ByteBuffer buffer, Function<String, Instance> instances) throws IOException {
+            this.buffer = buffer;
+            try {
+                if (buffer.getInt() != MAGIC) {
+                    throw new IOException("Not an NPC store");
+                }
+                int version = buffer.getShort();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported NPC store version " + version);
+                }
+                this.strings = new String[buffer.getInt()];
+                for (int i = 0; i < strings.length; i++) {
+                    byte[] bytes = new byte[buffer.getInt()];
+                    buffer.get(bytes);
+                    strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                this.names = new Component[strings.length];
+                SkinRegistry registry = AuriNPC.getInstance().getSkinRegistry();
+                this.skins = new Skin[buffer.getInt()];
+                for (int i = 0; i < skins.length; i++) {
+                    String value = strings[buffer.getInt()];
+                    int signature = buffer.getInt();
+                    skins[i] = registry.get(value, signature == NONE ? null : strings[signature]);
+                }
+                this.size = buffer.getInt();
+                // Every instance is resolved before any NPC is built, so an unknown key spawns nothing
+                resolveInstances(instances);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+                throw new IOException("Truncated or corrupt NPC store", e);
+            }
+        }
+
+        /**
+         * Gets the number of NPCs in the file.
+         * @return The number of NPCs
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Gets whether there are NPCs left to read.
+         * @return Whether there is a next NPC
+         */
+        public boolean hasNext() {
+            return read < size;
+        }
+
+        /**
+         * Builds the next NPC, which spawns it in its instance.
+         * @return The NPC
+         */
+        public @NotNull NPC next() {
+            if (!hasNext()) {
+                throw new IllegalStateException("No NPCs left");
+            }
+            read++;
+            NPCDefinition definition;
+            try {
+                definition = readDefinition();
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new UncheckedIOException(new IOException("Truncated or corrupt NPC store", e));
+            }
+            return definition.build(resolvedInstances.get(definition.instance));
+        }
+
+        private NPCDefinition readDefinition() {
+            NPCDefinition.Type type = NPCDefinition.Type.values()[buffer.get()];
+            UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+            String instance = strings[buffer.getInt()];
+            Pos position = new Pos(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getFloat(), buffer.getFloat());
+            NPCDefinition.Builder builder = new NPCDefinition.Builder(type, uuid, instance, position)
+                .customName(name(buffer.getInt()));
+            int skinIndex = buffer.getInt();
+            if (skinIndex != NONE) {
+                builder.skin(skins[skinIndex]);
+            }
+            int skinReference = buffer.getInt();
+            if (skinReference != NONE) {
+                builder.skinFrom(strings[skinReference]);
+            }
+            int flags = buffer.get();
+            builder.listed((flags & LISTED) != 0)
+                .lookAtPlayers((flags & LOOK_AT_PLAYERS) != 0)
+                .invulnerable((flags & INVULNERABLE) != 0)
+                .respawns((flags & RESPAWNS) != 0);
+            switch (type) {
+                case STATIC -> readLook(builder);
+                case LIVING_STATIC -> {
+                    readLook(builder);
+                    readHealth(builder);
+                }
+                case NAVIGATIONAL -> {
+                    readHealth(builder);
+                    builder.movementSpeed(buffer.getDouble());
+                }
+            }
+            return builder.build();
+        }
+
+        private void readLook(NPCDefinition.Builder builder) {
+            builder.lookRange(buffer.getLong())
+                .lookThreshold(buffer.getFloat())
+                .lookRate(buffer.getInt())
+                .lookMode(LookMode.values()[buffer.get()]);
+        }
+
+        private void readHealth(NPCDefinition.Builder builder) {
+            builder.maxHealth(buffer.getDouble())
+                .health(buffer.getFloat())
+                .respawnDelay(buffer.getLong());
+        }
+
+        private void resolveInstances(Function<String, Instance> instances) {
+            int records = buffer.position();
+            for (int i = 0; i < size; i++) {
+                NPCDefinition.Type type = NPCDefinition.Type.values()[buffer.get()];
+                skip(2 * Long.BYTES);
+                String key = strings[buffer.getInt()];
+                if (!resolvedInstances.containsKey(key)) {
+                    Instance instance = instances.apply(key);
+                    if (instance == null) {
+                        throw new IllegalArgumentException("Unknown instance " + key);
+                    }
+                    resolvedInstances.put(key, instance);
+                }
+                skip(RECORD_BYTES_AFTER_INSTANCE + switch (type) {
+                    case STATIC -> LOOK_BYTES;
+                    case LIVING_STATIC -> LOOK_BYTES + HEALTH_BYTES;
+                    case NAVIGATIONAL -> HEALTH_BYTES + Double.BYTES;
+                });
+            }
+            buffer.position(records);
+        }
+
+        private void skip(int bytes) {
+            if (buffer.remaining() < bytes) {
+                throw new BufferUnderflowException();
+            }
+            buffer.position(buffer.position() + bytes);
+        }
+
+        private Component name(int index) {
+            Component name = names[index];
+            if (name == null) {
+                name = GsonComponentSerializer.gson().deserialize(strings[index]);
+                names[index] = name;
+            }
+            return name;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release, the mapping is unmapped once the buffer is collected
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import net.minestom.server.Tickable;
+import net.minestom.server.thread.ThreadDispatcher;
+import net.minestom.server.thread.ThreadProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs the per-tick work of every instance's NPCs in parallel, one tick group per instance.
+ * <p>
+ * Each {@link InstanceNPCs} is a partition of a Minestom {@link ThreadDispatcher} of its own, so its timers,
+ * proximity sweep, look-at engine and crowd separation always run on the same thread, while the groups of
+ * different instances are spread over the dispatcher's threads, so adding instances adds work that can go to
+ * another core. The tick waits for every group before it returns.
+ * <p>
+ * The dispatcher is private to the library: groups do not run on Minestom's instance tick threads, so they
+ * must not change entity state directly. Navigation (pathfinding, flow fields and routes), the player info
+ * tracker and the registry's NPC locations are still shared by every group, through thread-safe services.
+ */
+public final class NPCTickGroups {
+    private final ThreadDispatcher<InstanceNPCs> dispatcher;
+    private final int threadCount;
+
+    NPCTickGroups(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+        this.dispatcher = ThreadDispatcher.of(ThreadProvider.counter(), this.threadCount);
+    }
+
+    /**
+     * Starts running the tick group of an instance's NPCs. Safe to call from any thread.
+     * @param npcs The NPCs of the instance
+     */
+    void add(@NotNull InstanceNPCs npcs) {
+        dispatcher.createPartition(npcs);
+        dispatcher.updateElement(npcs.getTickGroup(), npcs);
+    }
+
+    /**
+     * Stops running the tick group of an instance's NPCs. Safe to call from any thread.
+     * @param npcs The NPCs of the instance
+     */
+    void remove(@NotNull InstanceNPCs npcs) {
+        dispatcher.removeElement(npcs.getTickGroup());
+        dispatcher.deletePartition(npcs);
+    }
+
+    /**
+     * Ticks every group and waits for all of them.
+     * @param time The time of the tick
+     */
+    void tick(long time) {
+        dispatcher.updateAndAwait(time);
+        dispatcher.refreshThreads();
+    }
+
+    /**
+     * Gets the number of threads the groups are spread over.
+     * @return The number of threads
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+}
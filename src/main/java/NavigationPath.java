@@ -0,0 +1,23 @@
+import net.minestom.server.coordinate.Vec;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A path found for a {@link NavigationalNPC}, as the centers of the blocks to walk through.
+ * @param points The points to walk through, excluding the start and ending at the goal
+ */
+public record NavigationPath(@NotNull List<Vec> points) {
+    /**
+     * The path returned when the goal cannot be reached.
+     */
+    public static final NavigationPath NOT_FOUND = new NavigationPath(List.of());
+
+    /**
+     * Gets whether the path leads anywhere.
+     * @return Whether the path has no points
+     */
+    public boolean isEmpty() {
+        return points.isEmpty();
+    }
+}
@@ -1,35 +1,51 @@
 import net.kyori.adventure.text.Component;
-import net.minestom.server.MinecraftServer;
+import net.minestom.server.coordinate.Point;
 import net.minestom.server.coordinate.Pos;
+import net.minestom.server.coordinate.Vec;
 import net.minestom.server.entity.*;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
 import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
-public class NavigationalNPC extends EntityCreature implements NPC {
-    private String skinSignature;
-    private String skinValue;
-    private boolean listed;
+public class NavigationalNPC extends EntityCreature implements PooledNPC {
+    private static final double WAYPOINT_REACHED_SQUARED = 0.3 * 0.3;
+    // Blocks per second, about the velocity of a vanilla jump
+    private static final double JUMP_VELOCITY = 8.4;
+
+    private volatile int tickInterval = 1;
+    private long ticks;
     private double maxHealth;
     private boolean respawns;
     private long respawnDelay;
+    private volatile TimerWheel.Timer respawnTimer;
+    private volatile boolean despawned;
+    private volatile boolean dormant;
+    private volatile double movementSpeed = 0.1;
+    private volatile CompletableFuture<NavigationPath> pendingSearch;
+    private volatile CompletableFuture<NavigationPath> pendingNavigation;
+    private NavigationPath path;
+    private Route route;
+    private int routeLeg;
+    private Point flowGoal;
+    private FlowFieldService.Entry flowField;
+    private CompletableFuture<Boolean> flowArrival;
+    private int pathIndex;
 
-    private PlayerInfoUpdatePacket playerInfoUpdatePacket;
+    private final NPCPlayerInfo playerInfo;
 
     protected NavigationalNPC(
             @NotNull UUID uuid,
             @NotNull Instance instance,
             @NotNull Pos position,
             @NotNull Component customName,
-            @NotNull String skinSignature,
-            @NotNull String skinValue,
+            @NotNull Skin skin,
             boolean listed,
             double maxHealth,
             float health,
@@ -40,10 +56,6 @@ public class NavigationalNPC extends EntityCreature implements NPC {
     ) {
         // Constructor for full initial customization
         super(EntityType.PLAYER, uuid);
-        this.setInstance(instance, position);
-        this.skinSignature = skinSignature;
-        this.skinValue = skinValue;
-        this.listed = listed;
         this.setMaxHealth(maxHealth);
         this.setHealth(health);
         this.setInvulnerable(invulnerable);
@@ -51,27 +63,11 @@ public class NavigationalNPC extends EntityCreature implements NPC {
         this.respawnDelay = respawnDelay;
         this.setCustomName(customName);
         this.setCustomNameVisible(true);
-        this.playerInfoUpdatePacket = new PlayerInfoUpdatePacket(
-            PlayerInfoUpdatePacket.Action.ADD_PLAYER,
-            new PlayerInfoUpdatePacket.Entry(
-                uuid,
-                customName.examinableName(),
-                List.of(
-                    new PlayerInfoUpdatePacket.Property("textures", skinValue, skinSignature) // The client should be able to handle a blank skin property
-                ),
-                this.listed,
-                0,
-                GameMode.CREATIVE,
-                customName,
-                null,
-                0
-            )
-        );
-        MinecraftServer.getPacketListenerManager().setPlayListener(ClientInteractEntityPacket.class, (packet, player) -> {
-            if (packet.targetId() == this.getEntityId()) {
-                interactListener.accept(packet);
-            }
-        });
+        // Viewers are picked by distance in ProximityTracker
+        this.setAutoViewable(false);
+        this.playerInfo = new NPCPlayerInfo(this, this::getCustomName, skin, listed);
+        AuriNPC.getInstance().getInteractDispatcher().register(getEntityId(), interactListener);
+        this.setInstance(instance, position);
     }
 
     public static class Builder {
@@ -83,13 +79,14 @@ public class NavigationalNPC extends EntityCreature implements NPC {
 
         // Optional parameters
         private Component customName = Component.text("NPC");
-        private String skinSignature = "";
-        private String skinValue = "";
+        private Skin skin = Skin.EMPTY;
+        private String skinReference;
         private boolean listed = true;
         private float health = 1;
         private boolean invulnerable = false;
         private boolean respawns = false;
         private long respawnDelay = 0;
+        private double movementSpeed = 0.1;
         private Consumer<ClientInteractEntityPacket> interactListener = packet -> {};
 
         public Builder(@NotNull UUID uuid, @NotNull Instance instance, @NotNull Pos position, double maxHealth) {
@@ -100,7 +97,12 @@ public class NavigationalNPC extends EntityCreature implements NPC {
         }
 
         public NavigationalNPC build() {
-            return new NavigationalNPC(uuid, instance, position, customName, skinSignature, skinValue, listed, maxHealth, health, invulnerable, respawns, respawnDelay, interactListener);
+            NavigationalNPC npc = new NavigationalNPC(uuid, instance, position, customName, skin, listed, maxHealth, health, invulnerable, respawns, respawnDelay, interactListener);
+            npc.setMovementSpeed(movementSpeed);
+            if (skinReference != null) {
+                AuriNPC.getInstance().getSkinResolver().apply(npc, skinReference);
+            }
+            return npc;
         }
 
         public NavigationalNPC.Builder onInteract(Consumer<ClientInteractEntityPacket> interactListener) {
@@ -114,14 +116,22 @@ public class NavigationalNPC extends EntityCreature implements NPC {
         }
 
         public NavigationalNPC.Builder skin(String skinValue, String skinSignature) {
-            this.skinValue = skinValue;
-            this.skinSignature = skinSignature;
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skinValue, skinSignature);
             return this;
         }
 
         public NavigationalNPC.Builder skin(PlayerSkin skin) {
-            this.skinValue = skin.textures();
-            this.skinSignature = skin.signature();
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skin);
+            return this;
+        }
+
+        public NavigationalNPC.Builder skin(@NotNull Skin skin) {
+            this.skin = skin;
+            return this;
+        }
+
+        public NavigationalNPC.Builder skinFrom(@NotNull String reference) {
+            this.skinReference = reference;
             return this;
         }
 
@@ -149,12 +159,315 @@ public class NavigationalNPC extends EntityCreature implements NPC {
             this.respawnDelay = respawnDelay;
             return this;
         }
+
+        public NavigationalNPC.Builder movementSpeed(double movementSpeed) {
+            this.movementSpeed = movementSpeed;
+            return this;
+        }
     }
 
     @Override
-    public CompletableFuture<Void> setInstance(@NotNull Instance instance) {
-        AuriNPC.getInstance().removeNPC(this);
-        CompletableFuture<Void> future = super.setInstance(instance);
+    public void tick(long time) {
+        if (despawned) {
+            return;
+        }
+        if (dormant) {
+            // No player is close enough to see it think or walk, but it still lands and slides to a stop
+            if (!isOnGround() || !getVelocity().isZero()) {
+                super.tick(time);
+            }
+            return;
+        }
+        ticks++;
+        boolean due = ProximityTracker.isDue(getEntityId(), ticks, tickInterval);
+        if (!due && isOnGround()) {
+            // Far NPCs only move on the ticks they are due, covering the skipped ticks in one step
+            return;
+        }
+        super.tick(time);
+        if (!due) {
+            // Falling NPCs keep their physics every tick, but do not steer
+            return;
+        }
+        followPath();
+        followRoute();
+        followFlow();
+        separate();
+        AuriNPC.getInstance().getNPCs().update(this);
+    }
+
+    /**
+     * Sets whether the NPC is dormant, which the {@link ProximityTracker} of its instance decides.
+     * @param dormant Whether the NPC is dormant
+     */
+    void setDormant(boolean dormant) {
+        this.dormant = dormant;
+    }
+
+    @Override
+    public void aiTick(long time) {
+        // Far NPCs also decide less often, and dormant ones not at all
+        if (!dormant && ProximityTracker.isDue(getEntityId(), ticks, tickInterval)) {
+            super.aiTick(time);
+        }
+    }
+
+    /**
+     * Walks the NPC to a point, along a path searched off the tick thread. Cancels any previous navigation.
+     * Must be called on the tick thread of the NPC's instance.
+     * @param goal The point to walk to
+     * @return A future completed by the instance's tick group with the path once the NPC starts following it, or
+     * with an empty path if the point cannot be reached
+     */
+    public CompletableFuture<NavigationPath> navigateTo(@NotNull Point goal) {
+        cancelNavigation();
+        return search(goal);
+    }
+
+    private CompletableFuture<NavigationPath> search(Point goal) {
+        CompletableFuture<NavigationPath> navigation = new CompletableFuture<>();
+        CompletableFuture<NavigationPath> search = AuriNPC.getInstance().getPathfinding().request(getInstance(), getPosition(), goal);
+        pendingSearch = search;
+        pendingNavigation = navigation;
+        search.whenComplete((found, exception) -> AuriNPC.getInstance().schedule(this, () -> {
+            if (pendingSearch != search) {
+                return;
+            }
+            pendingSearch = null;
+            pendingNavigation = null;
+            if (exception != null) {
+                navigation.completeExceptionally(exception);
+                return;
+            }
+            if (!found.isEmpty()) {
+                path = found;
+                pathIndex = 0;
+            }
+            navigation.complete(found);
+        }, 1));
+        return navigation;
+    }
+
+    /**
+     * Makes the NPC patrol a route, starting at its closest waypoint. The NPC walks the paths shared by every
+     * NPC on the route instead of searching its own, and stops at the last waypoint unless the route loops.
+     * Cancels any previous navigation. Must be called on the tick thread of the NPC's instance.
+     * @param route The route to patrol, which must not have been removed
+     */
+    public void patrol(@NotNull Route route) {
+        if (route.isDiscarded()) {
+            throw new IllegalArgumentException("The route was removed");
+        }
+        cancelNavigation();
+        this.route = route;
+        this.routeLeg = route.closestLeg(getPosition());
+    }
+
+    /**
+     * Gets the route the NPC patrols.
+     * @return The route, or null if the NPC is not patrolling
+     */
+    public @Nullable Route getRoute() {
+        return route;
+    }
+
+    /**
+     * Walks the NPC to a point along the flow field of the point, which is shared with every other NPC walking
+     * there. Suited to crowds converging on the same goal. An NPC outside the field walks a searched path
+     * towards the goal until it enters the field. Cancels any previous navigation.
+     * @param goal The point to walk to
+     * @return A future completed by the instance's tick group with true once the NPC reaches the goal, or with
+     * false if the NPC is outside the field and no path to the goal is found
+     */
+    public CompletableFuture<Boolean> flowTo(@NotNull Point goal) {
+        cancelNavigation();
+        CompletableFuture<Boolean> arrival = new CompletableFuture<>();
+        flowGoal = goal;
+        flowArrival = arrival;
+        return arrival;
+    }
+
+    /**
+     * Gets the point the NPC walks to along a flow field.
+     * @return The goal, or null if the NPC is not following a flow field
+     */
+    public @Nullable Point getFlowGoal() {
+        return flowGoal;
+    }
+
+    /**
+     * Stops the NPC from searching or following a path or a flow field.
+     */
+    public void cancelNavigation() {
+        CompletableFuture<NavigationPath> search = pendingSearch;
+        CompletableFuture<NavigationPath> navigation = pendingNavigation;
+        CompletableFuture<Boolean> arrival = flowArrival;
+        pendingSearch = null;
+        pendingNavigation = null;
+        if (search != null) {
+            search.cancel(false);
+        }
+        if (navigation != null) {
+            navigation.cancel(false);
+        }
+        path = null;
+        route = null;
+        flowGoal = null;
+        flowField = null;
+        flowArrival = null;
+        if (arrival != null) {
+            arrival.cancel(false);
+        }
+    }
+
+    /**
+     * Gets the path the NPC is following.
+     * @return The path, or null if the NPC is not navigating
+     */
+    public @Nullable NavigationPath getPath() {
+        return path;
+    }
+
+    public double getMovementSpeed() {
+        return movementSpeed;
+    }
+
+    public void setMovementSpeed(double movementSpeed) {
+        this.movementSpeed = movementSpeed;
+    }
+
+    private void followPath() {
+        NavigationPath path = this.path;
+        if (path == null) {
+            return;
+        }
+        Pos position = getPosition();
+        Vec target = path.points().get(pathIndex);
+        double dx = target.x() - position.x();
+        double dz = target.z() - position.z();
+        if (dx * dx + dz * dz < WAYPOINT_REACHED_SQUARED && Math.abs(target.y() - position.y()) < 1) {
+            if (++pathIndex == path.points().size()) {
+                this.path = null;
+                return;
+            }
+            target = path.points().get(pathIndex);
+        }
+        walkTowards(position, target);
+    }
+
+    private void followRoute() {
+        Route route = this.route;
+        if (route == null || path != null || pendingSearch != null) {
+            return;
+        }
+        if (route.isDiscarded()) {
+            this.route = null;
+            return;
+        }
+        Vec start = route.getWaypoints().get(routeLeg);
+        if (!route.isAtStart(routeLeg, getPosition())) {
+            // Not on the route yet, or pushed off it, so search a way back to the start of the leg
+            search(start).thenAccept(found -> {
+                if (found.isEmpty() && this.route == route) {
+                    this.route = null;
+                }
+            });
+            return;
+        }
+        // The leg is still being searched, or cannot be walked until a block along it changes
+        NavigationPath leg = route.getPath(routeLeg);
+        if (leg == null || leg.isEmpty()) {
+            return;
+        }
+        path = leg;
+        pathIndex = 0;
+        if (++routeLeg == route.getLegCount()) {
+            if (route.isLooping()) {
+                routeLeg = 0;
+            } else {
+                this.route = null;
+            }
+        }
+    }
+
+    private void followFlow() {
+        Point goal = this.flowGoal;
+        Instance instance = getInstance();
+        if (goal == null || instance == null || pendingSearch != null) {
+            return;
+        }
+        FlowFieldService.Entry flowField = this.flowField;
+        if (flowField == null || flowField.isDiscarded()) {
+            flowField = AuriNPC.getInstance().getFlowFields().entry(instance, goal);
+            this.flowField = flowField;
+        }
+        FlowField field = flowField.field();
+        if (field == null) {
+            return;
+        }
+        Pos position = getPosition();
+        if (field.isAtGoal(position)) {
+            finishFlow(true);
+            return;
+        }
+        boolean inField = field.contains(position.blockX(), position.blockY(), position.blockZ());
+        if (path != null) {
+            if (!inField) {
+                return;
+            }
+            // Walked into the field, which takes over from the searched path
+            path = null;
+        } else if (!inField) {
+            // Outside the field, so search a path towards the goal and follow it until the field is reached
+            search(goal).thenAccept(found -> {
+                if (found.isEmpty() && this.flowGoal == goal) {
+                    finishFlow(false);
+                }
+            });
+            return;
+        }
+        // No step from here yet, so wait for the field to be recomputed or the NPC to be pushed back onto it
+        Vec target = field.next(position);
+        if (target != null) {
+            walkTowards(position, target);
+        }
+    }
+
+    private void finishFlow(boolean reached) {
+        CompletableFuture<Boolean> arrival = flowArrival;
+        flowGoal = null;
+        flowField = null;
+        flowArrival = null;
+        if (arrival != null) {
+            arrival.complete(reached);
+        }
+    }
+
+    private void separate() {
+        InstanceNPCs instanceNPCs = AuriNPC.getInstance().getNPCs().getInstanceNPCs(getInstance());
+        if (instanceNPCs == null) {
+            return;
+        }
+        Vec push = instanceNPCs.getSeparation().getPush(this);
+        if (push != Vec.ZERO) {
+            setVelocity(getVelocity().add(push.x(), 0, push.z()));
+        }
+    }
+
+    private void walkTowards(Pos position, Vec target) {
+        if (target.y() > position.y() + 0.5 && isOnGround()) {
+            setVelocity(getVelocity().withY(JUMP_VELOCITY));
+        }
+        // An NPC updating every few ticks walks as far in one step, without overshooting its target
+        double dx = target.x() - position.x();
+        double dz = target.z() - position.z();
+        double speed = Math.min(movementSpeed * tickInterval, Math.max(movementSpeed, Math.sqrt(dx * dx + dz * dz)));
+        getNavigator().moveTowards(target, speed, target);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInstance(@NotNull Instance instance, @NotNull Pos spawnPosition) {
+        CompletableFuture<Void> future = super.setInstance(instance, spawnPosition);
         future.thenRun(() -> AuriNPC.getInstance().addNPC(this));
         return future;
     }
@@ -163,79 +476,116 @@ public class NavigationalNPC extends EntityCreature implements NPC {
     public void remove() {
         super.remove();
         AuriNPC.getInstance().removeNPC(this);
+        AuriNPC.getInstance().getInteractDispatcher().unregister(getEntityId());
+        TimerWheel.Timer respawnTimer = this.respawnTimer;
+        if (respawnTimer != null) {
+            respawnTimer.cancel();
+        }
+        cancelNavigation();
     }
 
     @Override
     public void kill() {
         super.kill();
         if (respawns) {
-            CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    Thread.sleep(respawnDelay);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-                return true;
-            });
-            future.thenRun(() -> {
-                refreshIsDead(false);
-                setPose(EntityPose.STANDING);
-                setHealth((float) maxHealth);
-            });
+            respawnTimer = AuriNPC.getInstance().schedule(this, this::revive, TimerWheel.ticks(respawnDelay));
         } else {
             AuriNPC.getInstance().removeNPC(this);
         }
     }
 
+    private void revive() {
+        respawnTimer = null;
+        refreshIsDead(false);
+        setPose(EntityPose.STANDING);
+        setHealth((float) maxHealth);
+    }
+
+    @Override
+    public void despawn() {
+        if (despawned) {
+            return;
+        }
+        despawned = true;
+        cancelNavigation();
+        TimerWheel.Timer respawnTimer = this.respawnTimer;
+        if (respawnTimer != null) {
+            respawnTimer.cancel();
+            this.respawnTimer = null;
+        }
+        AuriNPC.getInstance().removeNPC(this);
+        AuriNPC.getInstance().getInteractDispatcher().unregister(getEntityId());
+        // Keep the entity tracker from showing the NPC to players until it is respawned
+        updateViewableRule(player -> false);
+    }
+
+    @Override
+    public CompletableFuture<Void> respawn(@NotNull Instance instance, @NotNull Pos position, @NotNull Component customName,
+                                           @NotNull Skin skin, @NotNull Consumer<ClientInteractEntityPacket> interactListener) {
+        // The UUID is kept: despawning queued the removal of the old entry, which PlayerInfoTracker sends
+        // before the new entry when the NPC is shown again
+        setCustomName(customName);
+        revive();
+        playerInfo.reset(skin);
+        AuriNPC.getInstance().getInteractDispatcher().register(getEntityId(), interactListener);
+        updateViewableRule(null);
+        despawned = false;
+        if (instance != getInstance()) {
+            return setInstance(instance, position);
+        }
+        return teleport(position).thenRun(() -> AuriNPC.getInstance().addNPC(this));
+    }
+
+    @Override
+    public boolean isDespawned() {
+        return despawned;
+    }
+
+    public int getTickInterval() {
+        return tickInterval;
+    }
+
+    public void setTickInterval(int tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
     public PlayerInfoUpdatePacket getPlayerInfoUpdatePacket() {
-        return playerInfoUpdatePacket;
+        return playerInfo.getPacket();
     }
 
     public void remakeInfoUpdatePacket() {
-        this.playerInfoUpdatePacket = new PlayerInfoUpdatePacket(
-            PlayerInfoUpdatePacket.Action.ADD_PLAYER,
-            new PlayerInfoUpdatePacket.Entry(
-                getUuid(),
-                Objects.requireNonNull(getCustomName()).toString(),
-                List.of(
-                        new PlayerInfoUpdatePacket.Property("textures", skinValue, skinSignature) // The client should be able to handle a blank skin property
-                ),
-                this.listed,
-                0,
-                GameMode.CREATIVE,
-                getCustomName(),
-                null,
-                0
-            )
-        );
-        getInstance().getPlayers().forEach(player -> player.sendPacket(playerInfoUpdatePacket));
+        playerInfo.refresh();
     }
 
-    public String getSkinSignature() {
-        return skinSignature;
+    /**
+     * Gets the player info packet of the NPC, encoded once and reused for every player it is sent to.
+     * @return The cached player info packet
+     */
+    public SendablePacket getCachedPlayerInfoUpdatePacket() {
+        return playerInfo.getCachedPacket();
     }
 
-    public String getSkinValue() {
-        return skinValue;
+    @Override
+    public void updateNewViewer(@NotNull Player player) {
+        // The client needs the player info entry before it can spawn a player entity
+        playerInfo.sendTo(player);
+        super.updateNewViewer(player);
     }
 
-    public void setSkin(@NotNull String skinValue, @NotNull String skinSignature) {
-        this.skinValue = skinValue;
-        this.skinSignature = skinSignature;
-        remakeInfoUpdatePacket();
+    public Skin getSkin() {
+        return playerInfo.getSkin();
     }
 
-    public void setSkin(PlayerSkin skin) {
-        setSkin(skin.textures(), skin.signature());
+    public void setSkin(@NotNull Skin skin) {
+        playerInfo.setSkin(skin);
     }
 
     public boolean isListed() {
-        return listed;
+        return playerInfo.isListed();
     }
 
     public void setListed(boolean listed) {
-        this.listed = listed;
-        remakeInfoUpdatePacket();
+        playerInfo.setListed(listed);
     }
 
     public void setMaxHealth(double maxHealth) {
@@ -0,0 +1,63 @@
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of node indices keyed by a score, kept in two primitive arrays. Nodes are not moved
+ * when their score drops: they are pushed again, and callers skip the stale entries they pop.
+ */
+final class NodeHeap {
+    private int[] nodes = new int[256];
+    private double[] scores = new double[256];
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void push(int node, double score) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+        }
+        int index = size++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= score) {
+                break;
+            }
+            nodes[index] = nodes[parent];
+            scores[index] = scores[parent];
+            index = parent;
+        }
+        nodes[index] = node;
+        scores[index] = score;
+    }
+
+    double peekScore() {
+        return scores[0];
+    }
+
+    int pop() {
+        int top = nodes[0];
+        int lastNode = nodes[--size];
+        double lastScore = scores[size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[child] >= lastScore) {
+                break;
+            }
+            nodes[index] = nodes[child];
+            scores[index] = scores[child];
+            index = child;
+        }
+        nodes[index] = lastNode;
+        scores[index] = lastScore;
+        return top;
+    }
+}
@@ -0,0 +1,195 @@
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minestom.server.coordinate.Vec;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * An A* search over the walkable blocks of a {@link PathSnapshot}.
+ * <p>
+ * Nodes live in parallel primitive arrays and the open set is a {@link NodeHeap} of node indices keyed by
+ * their estimated total cost, so a search allocates a handful of arrays instead of an object per node.
+ * <p>
+ * An NPC can walk to any of the eight neighbouring blocks, step up one block and drop down two, and does
+ * not cut corners.
+ */
+final class PathSearch {
+    private static final double DIAGONAL_COST = Math.sqrt(2);
+    private static final double STEP_UP_COST = 0.5;
+    static final int[] DIRECTIONS_X = {1, -1, 0, 0, 1, 1, -1, -1};
+    static final int[] DIRECTIONS_Z = {0, 0, 1, -1, 1, -1, 1, -1};
+    static final int DIRECTIONS = DIRECTIONS_X.length;
+    static final int NO_STEP = Integer.MIN_VALUE;
+    static final int[] STEPS_Y = {0, 1, -1, -2};
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private final PathSnapshot snapshot;
+    private final Long2IntOpenHashMap nodeByBlock = new Long2IntOpenHashMap();
+    private int[] xs = new int[256];
+    private int[] ys = new int[256];
+    private int[] zs = new int[256];
+    private int[] parents = new int[256];
+    private double[] costs = new double[256];
+    private boolean[] closed = new boolean[256];
+    private int nodeCount;
+    private final NodeHeap open = new NodeHeap();
+
+    private PathSearch(PathSnapshot snapshot) {
+        this.snapshot = snapshot;
+        this.nodeByBlock.defaultReturnValue(-1);
+    }
+
+    /**
+     * Searches a path between two blocks.
+     * @param snapshot The blocks to search in
+     * @param start The block the NPC stands in
+     * @param goal The block to reach, or the one above it
+     * @param maxNodes The number of nodes after which the search gives up
+     * @param cancelled Whether the search should stop early
+     * @return The path, or {@link NavigationPath#NOT_FOUND}
+     */
+    static @NotNull NavigationPath find(@NotNull PathSnapshot snapshot, @NotNull Vec start, @NotNull Vec goal,
+                                        int maxNodes, @NotNull BooleanSupplier cancelled) {
+        return new PathSearch(snapshot).search(start.blockX(), start.blockY(), start.blockZ(),
+            goal.blockX(), goal.blockY(), goal.blockZ(), maxNodes, cancelled);
+    }
+
+    private NavigationPath search(int startX, int startY, int startZ, int goalX, int goalY, int goalZ,
+                                  int maxNodes, BooleanSupplier cancelled) {
+        int start = node(startX, startY, startZ, -1, 0);
+        open.push(start, heuristic(startX, startZ, goalX, goalZ));
+        int expanded = 0;
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            if (closed[current]) {
+                continue;
+            }
+            closed[current] = true;
+            int x = xs[current];
+            int y = ys[current];
+            int z = zs[current];
+            if (x == goalX && z == goalZ && Math.abs(y - goalY) <= 1) {
+                return path(current);
+            }
+            if (++expanded % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                return NavigationPath.NOT_FOUND;
+            }
+            if (nodeCount >= maxNodes) {
+                return NavigationPath.NOT_FOUND;
+            }
+            for (int direction = 0; direction < DIRECTIONS; direction++) {
+                int dy = step(snapshot, x, y, z, direction);
+                if (dy == NO_STEP) {
+                    continue;
+                }
+                int nx = x + DIRECTIONS_X[direction];
+                int ny = y + dy;
+                int nz = z + DIRECTIONS_Z[direction];
+                double cost = costs[current] + stepCost(direction, dy);
+                int neighbour = nodeByBlock.get(blockIndex(nx, ny, nz));
+                if (neighbour == -1) {
+                    neighbour = node(nx, ny, nz, current, cost);
+                } else if (closed[neighbour] || cost >= costs[neighbour]) {
+                    continue;
+                } else {
+                    parents[neighbour] = current;
+                    costs[neighbour] = cost;
+                }
+                open.push(neighbour, cost + heuristic(nx, nz, goalX, goalZ));
+            }
+        }
+        return NavigationPath.NOT_FOUND;
+    }
+
+    /**
+     * Gets the vertical step an NPC takes when walking from a block in a direction. The NPC steps up or
+     * down to the first walkable block, and does not cut corners.
+     * @param snapshot The blocks
+     * @param x The X coordinate of the block the NPC stands in
+     * @param y The Y coordinate of the block the NPC stands in
+     * @param z The Z coordinate of the block the NPC stands in
+     * @param direction The index of the direction, below {@link #DIRECTIONS}
+     * @return The vertical step, or {@link #NO_STEP} if the NPC cannot walk that way
+     */
+    static int step(@NotNull PathSnapshot snapshot, int x, int y, int z, int direction) {
+        int dx = DIRECTIONS_X[direction];
+        int dz = DIRECTIONS_Z[direction];
+        if (dx != 0 && dz != 0 && (!isOpen(snapshot, x + dx, y, z) || !isOpen(snapshot, x, y, z + dz))) {
+            return NO_STEP;
+        }
+        for (int dy : STEPS_Y) {
+            if (!isWalkable(snapshot, x + dx, y + dy, z + dz)) {
+                continue;
+            }
+            // Stepping up needs head room above the NPC, dropping down needs the way over the edge to be open
+            if (dy > 0 ? !snapshot.isBlocked(x, y + 2, z) : dy == 0 || isOpen(snapshot, x + dx, y, z + dz)) {
+                return dy;
+            }
+        }
+        return NO_STEP;
+    }
+
+    /**
+     * Gets the cost of a step.
+     * @param direction The index of the direction
+     * @param dy The vertical step
+     * @return The cost
+     */
+    static double stepCost(int direction, int dy) {
+        boolean diagonal = DIRECTIONS_X[direction] != 0 && DIRECTIONS_Z[direction] != 0;
+        return (diagonal ? DIAGONAL_COST : 1) + (dy > 0 ? STEP_UP_COST : 0);
+    }
+
+    static boolean isWalkable(@NotNull PathSnapshot snapshot, int x, int y, int z) {
+        return isOpen(snapshot, x, y, z) && snapshot.isFloor(x, y - 1, z);
+    }
+
+    private static boolean isOpen(PathSnapshot snapshot, int x, int y, int z) {
+        return !snapshot.isBlocked(x, y, z) && !snapshot.isBlocked(x, y + 1, z);
+    }
+
+    private static double heuristic(int x, int z, int goalX, int goalZ) {
+        // Octile distance, which never overestimates on an eight-way grid
+        int dx = Math.abs(goalX - x);
+        int dz = Math.abs(goalZ - z);
+        return Math.max(dx, dz) + (DIAGONAL_COST - 1) * Math.min(dx, dz);
+    }
+
+    private NavigationPath path(int node) {
+        List<Vec> points = new ArrayList<>();
+        while (parents[node] != -1) {
+            points.add(new Vec(xs[node] + 0.5, ys[node], zs[node] + 0.5));
+            node = parents[node];
+        }
+        Collections.reverse(points);
+        return new NavigationPath(List.copyOf(points));
+    }
+
+    private int node(int x, int y, int z, int parent, double cost) {
+        if (nodeCount == xs.length) {
+            int capacity = nodeCount * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+            closed = Arrays.copyOf(closed, capacity);
+        }
+        int node = nodeCount++;
+        xs[node] = x;
+        ys[node] = y;
+        zs[node] = z;
+        parents[node] = parent;
+        costs[node] = cost;
+        nodeByBlock.put(blockIndex(x, y, z), node);
+        return node;
+    }
+
+    static long blockIndex(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+}
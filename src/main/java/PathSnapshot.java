@@ -0,0 +1,164 @@
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.instance.Chunk;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.instance.block.Block;
+import net.minestom.server.instance.palette.Palette;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A copy of the block palettes around a path request, taken on the tick thread so the path can be searched
+ * on a worker without touching the live chunks. Blocks outside the copied area count as blocked.
+ */
+final class PathSnapshot {
+    private static final double CHUNK_HALF_DIAGONAL = 8 * Math.sqrt(2);
+    // Blocks an NPC gets hurt in or on
+    private static final IntOpenHashSet DAMAGING = new IntOpenHashSet(new int[]{
+        Block.LAVA.id(), Block.FIRE.id(), Block.SOUL_FIRE.id(), Block.MAGMA_BLOCK.id(), Block.CAMPFIRE.id(),
+        Block.SOUL_CAMPFIRE.id(), Block.CACTUS.id(), Block.SWEET_BERRY_BUSH.id(), Block.WITHER_ROSE.id(),
+        Block.POWDER_SNOW.id()
+    });
+
+    private final Long2ObjectOpenHashMap<Palette[]> chunks;
+    private final int minSection;
+    private final int sectionCount;
+
+    private PathSnapshot(Long2ObjectOpenHashMap<Palette[]> chunks, int minSection, int sectionCount) {
+        this.chunks = chunks;
+        this.minSection = minSection;
+        this.sectionCount = sectionCount;
+    }
+
+    /**
+     * Copies the loaded sections around the line between two points. Must be called on the instance's tick
+     * thread. Only the chunks within the margin of the line are copied, not the whole box spanned by both
+     * points, and nothing is copied when that is more sections than allowed.
+     * @param instance The instance
+     * @param from The start of the path
+     * @param to The goal of the path
+     * @param margin The number of blocks to copy around the line
+     * @param maxSections The largest number of sections to copy
+     * @return The snapshot, or null if it would copy more than the maximum number of sections
+     */
+    static @Nullable PathSnapshot capture(@NotNull Instance instance, @NotNull Point from, @NotNull Point to,
+                                          int margin, int maxSections) {
+        int minSection = (Math.min(from.blockY(), to.blockY()) - margin) >> 4;
+        int maxSection = (Math.max(from.blockY(), to.blockY()) + margin) >> 4;
+        int minChunkX = (Math.min(from.blockX(), to.blockX()) - margin) >> 4;
+        int maxChunkX = (Math.max(from.blockX(), to.blockX()) + margin) >> 4;
+        int minChunkZ = (Math.min(from.blockZ(), to.blockZ()) - margin) >> 4;
+        int maxChunkZ = (Math.max(from.blockZ(), to.blockZ()) + margin) >> 4;
+        double reach = margin + CHUNK_HALF_DIAGONAL;
+        LongArrayList chunks = new LongArrayList();
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                double centerX = (chunkX << 4) + 8;
+                double centerZ = (chunkZ << 4) + 8;
+                if (distanceSquaredToLine(centerX, centerZ, from, to) <= reach * reach) {
+                    chunks.add(InstanceNPCs.chunkIndex(chunkX, chunkZ));
+                }
+            }
+        }
+        if ((long) chunks.size() * (maxSection - minSection + 1) > maxSections) {
+            return null;
+        }
+        return capture(instance, chunks, minSection, maxSection);
+    }
+
+    /**
+     * Copies the loaded sections around a point. Must be called on the instance's tick thread.
+     * @param instance The instance
+     * @param center The point to copy around
+     * @param radius The number of blocks to copy horizontally around the point
+     * @param verticalRadius The number of blocks to copy vertically around the point
+     * @return The snapshot
+     */
+    static PathSnapshot capture(@NotNull Instance instance, @NotNull Point center, int radius, int verticalRadius) {
+        LongArrayList chunks = new LongArrayList();
+        for (int chunkX = (center.blockX() - radius) >> 4; chunkX <= (center.blockX() + radius) >> 4; chunkX++) {
+            for (int chunkZ = (center.blockZ() - radius) >> 4; chunkZ <= (center.blockZ() + radius) >> 4; chunkZ++) {
+                chunks.add(InstanceNPCs.chunkIndex(chunkX, chunkZ));
+            }
+        }
+        return capture(instance, chunks, (center.blockY() - verticalRadius) >> 4, (center.blockY() + verticalRadius) >> 4);
+    }
+
+    private static PathSnapshot capture(Instance instance, LongArrayList chunkIndexes, int minSection, int maxSection) {
+        Long2ObjectOpenHashMap<Palette[]> chunks = new Long2ObjectOpenHashMap<>(chunkIndexes.size());
+        for (int i = 0; i < chunkIndexes.size(); i++) {
+            long index = chunkIndexes.getLong(i);
+            Chunk chunk = instance.getChunk((int) (index >> 32), (int) index);
+            if (chunk == null) {
+                continue;
+            }
+            Palette[] sections = new Palette[maxSection - minSection + 1];
+            int firstSection = Math.max(minSection, chunk.getMinSection());
+            int lastSection = Math.min(maxSection, chunk.getMaxSection() - 1);
+            for (int section = firstSection; section <= lastSection; section++) {
+                sections[section - minSection] = chunk.getSection(section).blockPalette().clone();
+            }
+            chunks.put(index, sections);
+        }
+        return new PathSnapshot(chunks, minSection, maxSection - minSection + 1);
+    }
+
+    /**
+     * Gets the horizontal distance between a point and the line between two others.
+     * @param x The X coordinate of the point
+     * @param z The Z coordinate of the point
+     * @param from The start of the line
+     * @param to The end of the line
+     * @return The squared distance
+     */
+    static double distanceSquaredToLine(double x, double z, @NotNull Point from, @NotNull Point to) {
+        double dx = to.x() - from.x();
+        double dz = to.z() - from.z();
+        double lengthSquared = dx * dx + dz * dz;
+        double t = lengthSquared == 0 ? 0 : ((x - from.x()) * dx + (z - from.z()) * dz) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        double offsetX = from.x() + t * dx - x;
+        double offsetZ = from.z() + t * dz - z;
+        return offsetX * offsetX + offsetZ * offsetZ;
+    }
+
+    /**
+     * Gets whether an NPC cannot stand in a block, because it is solid, a fluid or hurts.
+     * @param x The block X coordinate
+     * @param y The block Y coordinate
+     * @param z The block Z coordinate
+     * @return Whether the block is blocked or outside the snapshot
+     */
+    boolean isBlocked(int x, int y, int z) {
+        Block block = block(x, y, z);
+        return block == null || block.isSolid() || block.isLiquid() || DAMAGING.contains(block.id());
+    }
+
+    /**
+     * Gets whether an NPC can stand on top of a block.
+     * @param x The block X coordinate
+     * @param y The block Y coordinate
+     * @param z The block Z coordinate
+     * @return Whether the block is a safe floor, which a block outside the snapshot never is
+     */
+    boolean isFloor(int x, int y, int z) {
+        // Unknown ground may be void or unloaded terrain, so paths stop at the edge of the snapshot
+        Block block = block(x, y, z);
+        return block != null && block.isSolid() && !DAMAGING.contains(block.id());
+    }
+
+    private Block block(int x, int y, int z) {
+        Palette[] sections = chunks.get(InstanceNPCs.chunkIndex(x >> 4, z >> 4));
+        int section = (y >> 4) - minSection;
+        if (sections == null || section < 0 || section >= sectionCount) {
+            return null;
+        }
+        Palette palette = sections[section];
+        if (palette == null) {
+            return null;
+        }
+        return Block.fromStateId(palette.get(x & 15, y & 15, z & 15));
+    }
+}
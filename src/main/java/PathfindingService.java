@@ -0,0 +1,162 @@
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Searches paths for {@link NavigationalNPC}s on a bounded pool of worker threads, so long paths never
+ * stall the tick.
+ * <p>
+ * A request copies the block palettes along the line between the start and the goal on the calling tick
+ * thread, then searches that snapshot on a worker. The copy is capped at a number of sections, so a request
+ * never costs the tick more than that. Requests beyond the queue capacity fail right away instead of piling up.
+ */
+public class PathfindingService {
+    private final ThreadPoolExecutor executor;
+    private volatile int maxNodes = 20_000;
+    private volatile int maxDistance = 96;
+    private volatile int margin = 16;
+    private volatile int maxSections = 128;
+
+    PathfindingService(int threads, int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "aurinpc-pathfinding");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Requests a path. Must be called on the tick thread of the instance, as it copies its blocks.
+     * @param instance The instance to search in
+     * @param start The position to start from
+     * @param goal The position to reach
+     * @return The search, completed on a worker thread, which stops early once cancelled
+     */
+    @NotNull CompletableFuture<NavigationPath> request(@NotNull Instance instance, @NotNull Point start, @NotNull Point goal) {
+        if (start.distanceSquared(goal) > (double) maxDistance * maxDistance) {
+            return CompletableFuture.completedFuture(NavigationPath.NOT_FOUND);
+        }
+        PathSnapshot snapshot = PathSnapshot.capture(instance, start, goal, margin, maxSections);
+        if (snapshot == null) {
+            return CompletableFuture.completedFuture(NavigationPath.NOT_FOUND);
+        }
+        Vec from = new Vec(start.x(), start.y(), start.z());
+        Vec to = new Vec(goal.x(), goal.y(), goal.z());
+        int maxNodes = this.maxNodes;
+        return submit(cancelled -> PathSearch.find(snapshot, from, to, maxNodes, cancelled));
+    }
+
+    /**
+     * Runs a search on a worker thread.
+     * @param search The search, given whether it should stop early
+     * @return The result, completed on a worker thread, or exceptionally if the queue is full
+     */
+    <T> @NotNull CompletableFuture<T> submit(@NotNull Function<BooleanSupplier, T> search) {
+        CompletableFuture<T> request = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (request.isDone()) {
+                    return;
+                }
+                try {
+                    request.complete(search.apply(request::isDone));
+                } catch (Throwable e) {
+                    request.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            request.completeExceptionally(e);
+        }
+        return request;
+    }
+
+    /**
+     * Gets the number of nodes after which a search gives up.
+     * @return The maximum number of nodes
+     */
+    public int getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Sets the number of nodes after which a search gives up.
+     * @param maxNodes The maximum number of nodes
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = Math.max(1, maxNodes);
+    }
+
+    /**
+     * Gets the largest straight distance between a start and a goal that is searched.
+     * @return The maximum distance in blocks
+     */
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Sets the largest straight distance between a start and a goal that is searched. Larger distances copy
+     * more blocks on the tick thread.
+     * @param maxDistance The maximum distance in blocks
+     */
+    public void setMaxDistance(int maxDistance) {
+        this.maxDistance = Math.max(1, maxDistance);
+    }
+
+    /**
+     * Gets the number of blocks copied around the line between a start and a goal, so paths can go around
+     * obstacles.
+     * @return The margin in blocks
+     */
+    public int getMargin() {
+        return margin;
+    }
+
+    /**
+     * Sets the number of blocks copied around the line between a start and a goal.
+     * @param margin The margin in blocks
+     */
+    public void setMargin(int margin) {
+        this.margin = Math.max(0, margin);
+    }
+
+    /**
+     * Gets the largest number of 16x16x16 sections a request copies on the tick thread. Requests that would
+     * copy more are not found.
+     * @return The maximum number of sections
+     */
+    public int getMaxSections() {
+        return maxSections;
+    }
+
+    /**
+     * Sets the largest number of 16x16x16 sections a request copies on the tick thread.
+     * @param maxSections The maximum number of sections
+     */
+    public void setMaxSections(int maxSections) {
+        this.maxSections = Math.max(1, maxSections);
+    }
+
+    /**
+     * Gets the number of requests waiting for a worker.
+     * @return The number of queued requests
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,76 @@
+import net.minestom.server.network.packet.server.CachedPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
+import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The player info entries of many NPCs, merged into as few size-bounded packets as possible.
+ * @param packets The merged packets, each encoded once
+ * @param npcs The NPCs whose entries are in the packets
+ */
+public record PlayerInfoBatch(@NotNull List<SendablePacket> packets, @NotNull List<NPC> npcs) {
+    /**
+     * The rough number of bytes after which entries are split into another packet.
+     */
+    static final int MAX_PACKET_SIZE = 1 << 18;
+
+    public static final PlayerInfoBatch EMPTY = new PlayerInfoBatch(List.of(), List.of());
+
+    /**
+     * Merges the player info entries of NPCs.
+     * @param npcs The NPCs
+     * @return The merged entries
+     */
+    public static PlayerInfoBatch of(@NotNull Iterable<? extends NPC> npcs) {
+        Map<EnumSet<PlayerInfoUpdatePacket.Action>, List<PlayerInfoUpdatePacket.Entry>> entries = new LinkedHashMap<>();
+        List<NPC> included = new ArrayList<>();
+        for (NPC npc : npcs) {
+            PlayerInfoUpdatePacket packet = npc.getPlayerInfoUpdatePacket();
+            if (packet == null) {
+                continue;
+            }
+            entries.computeIfAbsent(packet.actions(), actions -> new ArrayList<>()).addAll(packet.entries());
+            included.add(npc);
+        }
+        if (included.isEmpty()) {
+            return EMPTY;
+        }
+        List<SendablePacket> packets = new ArrayList<>();
+        entries.forEach((actions, list) -> {
+            List<PlayerInfoUpdatePacket.Entry> current = new ArrayList<>();
+            int size = 0;
+            for (PlayerInfoUpdatePacket.Entry entry : list) {
+                int entrySize = estimateSize(entry);
+                if (!current.isEmpty() && size + entrySize > MAX_PACKET_SIZE) {
+                    packets.add(new CachedPacket(new PlayerInfoUpdatePacket(actions, List.copyOf(current))));
+                    current.clear();
+                    size = 0;
+                }
+                current.add(entry);
+                size += entrySize;
+            }
+            if (!current.isEmpty()) {
+                packets.add(new CachedPacket(new PlayerInfoUpdatePacket(actions, List.copyOf(current))));
+            }
+        });
+        return new PlayerInfoBatch(List.copyOf(packets), List.copyOf(included));
+    }
+
+    private static int estimateSize(PlayerInfoUpdatePacket.Entry entry) {
+        // UUID, flags and varints, then the strings, which dominate because of the skin property
+        int size = 32 + entry.username().length();
+        for (PlayerInfoUpdatePacket.Property property : entry.properties()) {
+            size += property.name().length() + property.value().length();
+            if (property.signature() != null) {
+                size += property.signature().length();
+            }
+        }
+        return size;
+    }
+}
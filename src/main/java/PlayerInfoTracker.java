@@ -0,0 +1,197 @@
+import net.minestom.server.entity.Player;
+import net.minestom.server.network.packet.server.play.PlayerInfoRemovePacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tracks which NPC player info entries each player holds, so that an entry is not sent twice and does not
+ * outlive its use.
+ * <p>
+ * Entries of unlisted NPCs are removed from a player once their skin has had time to load, and entries of
+ * NPCs that were removed or changed instance are removed from everyone holding them. Removals are
+ * collected per player and sent as one {@link PlayerInfoRemovePacket} every batch interval. An entry sent
+ * again while its removal is queued is removed right away first, as clients keep the first entry they get
+ * for a UUID.
+ */
+public class PlayerInfoTracker {
+    private final ConcurrentHashMap<UUID, Holder> holders = new ConcurrentHashMap<>();
+    private volatile long tick;
+    private volatile int skinLoadDelay = 40;
+    private volatile int batchInterval = 10;
+
+    PlayerInfoTracker() {
+    }
+
+    /**
+     * Records that a player is about to be sent the player info entry of an NPC. A queued removal of the entry
+     * is sent right away, so the entry must be sent after this call.
+     * @param player The player
+     * @param npc The NPC
+     * @return Whether the player did not hold the entry yet
+     */
+    public boolean markSent(@NotNull Player player, @NotNull NPC npc) {
+        return holder(player).sent(npc, tick);
+    }
+
+    /**
+     * Sends merged player info entries to a player and records that they hold them. Queued removals of any of
+     * the entries are sent before the batch, so the client does not drop the entries it just got.
+     * @param player The player
+     * @param batch The entries
+     */
+    public void send(@NotNull Player player, @NotNull PlayerInfoBatch batch) {
+        Holder holder = holder(player);
+        long now = tick;
+        for (NPC npc : batch.npcs()) {
+            holder.sent(npc, now);
+        }
+        batch.packets().forEach(player::sendPacket);
+    }
+
+    /**
+     * Gets whether a player holds the player info entry of an NPC.
+     * @param player The player
+     * @param npc The NPC
+     * @return Whether the player holds the entry
+     */
+    public boolean holds(@NotNull Player player, @NotNull NPC npc) {
+        Holder holder = holders.get(player.getUuid());
+        return holder != null && holder.held.containsKey(npc.getUuid());
+    }
+
+    /**
+     * Removes the player info entry of an NPC from every player holding it, with the next batch.
+     * @param npc The NPC
+     */
+    public void removeEverywhere(@NotNull NPC npc) {
+        UUID uuid = npc.getUuid();
+        for (Holder holder : holders.values()) {
+            if (holder.held.remove(uuid) != null) {
+                holder.removed.add(uuid);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of ticks an unlisted NPC's entry is kept after being sent, so its skin can load.
+     * @return The skin load delay in ticks
+     */
+    public int getSkinLoadDelay() {
+        return skinLoadDelay;
+    }
+
+    /**
+     * Sets the number of ticks an unlisted NPC's entry is kept after being sent, so its skin can load.
+     * @param skinLoadDelay The skin load delay in ticks
+     */
+    public void setSkinLoadDelay(int skinLoadDelay) {
+        this.skinLoadDelay = skinLoadDelay;
+    }
+
+    /**
+     * Gets the number of ticks between two batches of entry removals.
+     * @return The batch interval in ticks
+     */
+    public int getBatchInterval() {
+        return batchInterval;
+    }
+
+    /**
+     * Sets the number of ticks between two batches of entry removals.
+     * @param batchInterval The batch interval in ticks
+     */
+    public void setBatchInterval(int batchInterval) {
+        this.batchInterval = Math.max(1, batchInterval);
+    }
+
+    /**
+     * Forgets everything tracked for a player, usually because they disconnected.
+     * @param player The player
+     */
+    void forget(@NotNull Player player) {
+        holders.remove(player.getUuid());
+    }
+
+    /**
+     * Forgets that a player holds the player info entry of an NPC, without removing it from their client.
+     * @param player The player
+     * @param npc The NPC
+     * @return Whether the player held the entry
+     */
+    boolean forget(@NotNull Player player, @NotNull NPC npc) {
+        Holder holder = holders.get(player.getUuid());
+        return holder != null && holder.held.remove(npc.getUuid()) != null;
+    }
+
+    void tick() {
+        long now = ++tick;
+        if (now % batchInterval != 0) {
+            return;
+        }
+        for (Holder holder : holders.values()) {
+            holder.flush(now, skinLoadDelay);
+        }
+    }
+
+    private Holder holder(Player player) {
+        return holders.computeIfAbsent(player.getUuid(), uuid -> new Holder(player));
+    }
+
+    private static final class Holder {
+        private final Player player;
+        // The tick each held entry was last sent at
+        private final ConcurrentHashMap<UUID, Long> held = new ConcurrentHashMap<>();
+        private final Queue<Removal> unlisted = new ConcurrentLinkedQueue<>();
+        private final Set<UUID> removed = ConcurrentHashMap.newKeySet();
+
+        private Holder(Player player) {
+            this.player = player;
+        }
+
+        private boolean sent(NPC npc, long now) {
+            boolean added = held.put(npc.getUuid(), now) == null;
+            if (added && removed.remove(npc.getUuid())) {
+                // The client still holds the entry, which may have changed since, so it has to go first
+                player.sendPacket(new PlayerInfoRemovePacket(npc.getUuid()));
+            }
+            if (!npc.isListed()) {
+                unlisted.add(new Removal(npc, now));
+            }
+            return added;
+        }
+
+        private void flush(long now, int skinLoadDelay) {
+            List<UUID> uuids = new ArrayList<>();
+            for (UUID uuid : removed) {
+                if (removed.remove(uuid)) {
+                    uuids.add(uuid);
+                }
+            }
+            Removal removal;
+            while ((removal = unlisted.peek()) != null && now - removal.sentAt >= skinLoadDelay) {
+                unlisted.poll();
+                NPC npc = removal.npc;
+                if (npc.isListed()) {
+                    continue;
+                }
+                // Only the removal queued by the latest send may remove the entry
+                if (held.remove(npc.getUuid(), removal.sentAt)) {
+                    uuids.add(npc.getUuid());
+                }
+            }
+            if (!uuids.isEmpty()) {
+                player.sendPacket(new PlayerInfoRemovePacket(uuids));
+            }
+        }
+    }
+
+    private record Removal(NPC npc, long sentAt) {
+    }
+}
@@ -0,0 +1,42 @@
+import net.kyori.adventure.text.Component;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * An NPC that can be despawned and spawned again as a different NPC, so an {@link NPCPool} can reuse its
+ * entity instead of creating a new one.
+ */
+public interface PooledNPC extends NPC {
+    /**
+     * Hides the NPC from every player and stops tracking it, without removing its entity.
+     */
+    void despawn();
+
+    /**
+     * Spawns a despawned NPC again with a new identity.
+     * @param instance The instance to spawn in
+     * @param position The position to spawn at
+     * @param customName The new name
+     * @param skin The new skin
+     * @param interactListener The new interaction listener
+     * @return A future completed once the NPC is visible again
+     */
+    CompletableFuture<Void> respawn(@NotNull Instance instance, @NotNull Pos position, @NotNull Component customName,
+                                    @NotNull Skin skin, @NotNull Consumer<ClientInteractEntityPacket> interactListener);
+
+    /**
+     * Gets whether the NPC is despawned.
+     * @return Whether the NPC is despawned
+     */
+    boolean isDespawned();
+
+    /**
+     * Removes the entity of the NPC for good.
+     */
+    void remove();
+}
@@ -0,0 +1,162 @@
+/**
+ * Settings for how AuriNPC reacts to the distance between NPCs and players.
+ */
+public class ProximitySettings {
+    private volatile double wakeRadius = 56;
+    private volatile double viewRadius = 48;
+    private volatile double viewHysteresis = 8;
+    private volatile int sweepInterval = 10;
+    private volatile double fullRateDistance = 8;
+    private volatile double reducedRateDistance = 24;
+    private volatile int reducedRateInterval = 2;
+    private volatile int distantInterval = 5;
+
+    ProximitySettings() {
+    }
+
+    /**
+     * Gets the distance within which a player keeps an NPC awake. NPCs with no player this close are dormant
+     * and skip their tick.
+     * @return The wake radius in blocks
+     */
+    public double getWakeRadius() {
+        return wakeRadius;
+    }
+
+    /**
+     * Sets the distance within which a player keeps an NPC awake.
+     * @param wakeRadius The wake radius in blocks
+     */
+    public void setWakeRadius(double wakeRadius) {
+        this.wakeRadius = wakeRadius;
+    }
+
+    /**
+     * Gets the distance within which a player starts viewing an NPC.
+     * @return The view radius in blocks
+     */
+    public double getViewRadius() {
+        return viewRadius;
+    }
+
+    /**
+     * Sets the distance within which a player starts viewing an NPC. The wake radius should be at least the
+     * view radius plus the hysteresis, so NPCs players can see are never dormant.
+     * @param viewRadius The view radius in blocks
+     */
+    public void setViewRadius(double viewRadius) {
+        this.viewRadius = viewRadius;
+    }
+
+    /**
+     * Gets the distance past the view radius a player has to go before they stop viewing an NPC.
+     * @return The view hysteresis in blocks
+     */
+    public double getViewHysteresis() {
+        return viewHysteresis;
+    }
+
+    /**
+     * Sets the distance past the view radius a player has to go before they stop viewing an NPC.
+     * @param viewHysteresis The view hysteresis in blocks
+     */
+    public void setViewHysteresis(double viewHysteresis) {
+        this.viewHysteresis = Math.max(0, viewHysteresis);
+    }
+
+    /**
+     * Gets the number of ticks between two sweeps over the NPCs around players, which park
+     * NPCs no player is close to and update which players view NPCs that moved.
+     * @return The sweep interval in ticks
+     */
+    public int getSweepInterval() {
+        return sweepInterval;
+    }
+
+    /**
+     * Sets the number of ticks between two sweeps over the NPCs around players.
+     * @param sweepInterval The sweep interval in ticks
+     */
+    public void setSweepInterval(int sweepInterval) {
+        this.sweepInterval = Math.max(1, sweepInterval);
+    }
+
+    /**
+     * Gets the distance within which the closest player keeps an NPC updating every tick.
+     * @return The full rate distance in blocks
+     */
+    public double getFullRateDistance() {
+        return fullRateDistance;
+    }
+
+    /**
+     * Sets the distance within which the closest player keeps an NPC updating every tick.
+     * @param fullRateDistance The full rate distance in blocks
+     */
+    public void setFullRateDistance(double fullRateDistance) {
+        this.fullRateDistance = fullRateDistance;
+    }
+
+    /**
+     * Gets the distance within which the closest player keeps an NPC updating at the reduced rate. NPCs
+     * further away update at the distant rate.
+     * @return The reduced rate distance in blocks
+     */
+    public double getReducedRateDistance() {
+        return reducedRateDistance;
+    }
+
+    /**
+     * Sets the distance within which the closest player keeps an NPC updating at the reduced rate.
+     * @param reducedRateDistance The reduced rate distance in blocks
+     */
+    public void setReducedRateDistance(double reducedRateDistance) {
+        this.reducedRateDistance = reducedRateDistance;
+    }
+
+    /**
+     * Gets the number of ticks between two updates of an NPC at the reduced rate.
+     * @return The reduced rate interval in ticks
+     */
+    public int getReducedRateInterval() {
+        return reducedRateInterval;
+    }
+
+    /**
+     * Sets the number of ticks between two updates of an NPC at the reduced rate.
+     * @param reducedRateInterval The reduced rate interval in ticks
+     */
+    public void setReducedRateInterval(int reducedRateInterval) {
+        this.reducedRateInterval = Math.max(1, reducedRateInterval);
+    }
+
+    /**
+     * Gets the number of ticks between two updates of an NPC at the distant rate.
+     * @return The distant interval in ticks
+     */
+    public int getDistantInterval() {
+        return distantInterval;
+    }
+
+    /**
+     * Sets the number of ticks between two updates of an NPC at the distant rate.
+     * @param distantInterval The distant interval in ticks
+     */
+    public void setDistantInterval(int distantInterval) {
+        this.distantInterval = Math.max(1, distantInterval);
+    }
+
+    /**
+     * Gets the number of ticks between two updates of an NPC, from the distance to its closest player.
+     * @param distanceSquared The squared distance to the closest player
+     * @return The update interval in ticks
+     */
+    public int getTickInterval(double distanceSquared) {
+        double fullRate = fullRateDistance;
+        if (distanceSquared <= fullRate * fullRate) {
+            return 1;
+        }
+        double reducedRate = reducedRateDistance;
+        return distanceSquared <= reducedRate * reducedRate ? reducedRateInterval : distantInterval;
+    }
+}
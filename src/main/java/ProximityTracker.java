@@ -0,0 +1,329 @@
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Finds the NPCs of an instance that no player is close to and parks them as dormant, so they skip their
+ * AI, navigation and look-at until a player comes back.
+ * <p>
+ * Every sweep interval, the tracker walks each player's surrounding chunks in the instance's NPC grid, and
+ * only the NPCs it reaches there, or that were awake before, are looked at again. A sweep therefore costs as
+ * much as the NPCs near players, however many NPCs the instance has. In between, a player moving into
+ * another chunk wakes the NPCs around them right away through {@link #wake(Point)}.
+ * <p>
+ * Awake NPCs also get a tick interval from the distance to their closest player, so far NPCs update less
+ * often. Each NPC is offset by its entity id, so NPCs on the same interval do not all update on the same tick.
+ * <p>
+ * The tracker also decides which players view which NPCs. A player starts viewing an NPC once within the
+ * view radius and stops once further than the view radius plus the hysteresis, so a player walking along
+ * the edge does not make NPCs flicker. Views are refreshed when a player moves into another chunk and on
+ * every sweep, for NPCs that moved.
+ */
+public class ProximityTracker {
+    private final InstanceNPCs npcs;
+    private final Set<NPC> dormant = ConcurrentHashMap.newKeySet();
+    private final Reference2ObjectOpenHashMap<NPC, Proximity> proximities = new Reference2ObjectOpenHashMap<>();
+    private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+    // The NPCs awake after the last sweep, and those woken or tracked since
+    private List<NPC> awake = new ArrayList<>();
+    private List<NPC> reached = new ArrayList<>();
+    private final ConcurrentHashMap<Player, Set<NPC>> views = new ConcurrentHashMap<>();
+    private long tick;
+    private long sweep;
+
+    ProximityTracker(@NotNull InstanceNPCs npcs) {
+        this.npcs = npcs;
+    }
+
+    /**
+     * Starts tracking an NPC as awake.
+     * @param npc The NPC
+     */
+    void track(@NotNull NPC npc) {
+        unpark(npc);
+        npc.setTickInterval(1);
+        changes.add(new Change(npc, true));
+    }
+
+    /**
+     * Stops tracking an NPC that left the instance.
+     * @param npc The NPC
+     */
+    void forget(@NotNull NPC npc) {
+        unpark(npc);
+        changes.add(new Change(npc, false));
+        for (Set<NPC> viewed : views.values()) {
+            viewed.remove(npc);
+        }
+    }
+
+    /**
+     * Shows an NPC to the players within the view radius, usually because it was just added.
+     * @param npc The NPC
+     */
+    void show(@NotNull NPC npc) {
+        double radius = AuriNPC.getInstance().getProximitySettings().getViewRadius();
+        double radiusSquared = radius * radius;
+        Pos position = npc.getPosition();
+        for (Player player : npcs.getInstance().getPlayers()) {
+            if (player.getPosition().distanceSquared(position) <= radiusSquared) {
+                view(player).add(npc);
+                npc.addViewer(player);
+            }
+        }
+    }
+
+    /**
+     * Shows several NPCs to the players within the view radius, usually because they were just spawned
+     * together. Each player gets the player info entries of all the NPCs they are about to view in as few
+     * packets as possible, before the NPCs are spawned for them.
+     * @param added The NPCs
+     */
+    void show(@NotNull Collection<? extends NPC> added) {
+        double radius = AuriNPC.getInstance().getProximitySettings().getViewRadius();
+        double radiusSquared = radius * radius;
+        PlayerInfoTracker playerInfoTracker = AuriNPC.getInstance().getPlayerInfoTracker();
+        List<NPC> visible = new ArrayList<>();
+        List<NPC> unsent = new ArrayList<>();
+        for (Player player : npcs.getInstance().getPlayers()) {
+            Pos position = player.getPosition();
+            visible.clear();
+            unsent.clear();
+            for (NPC npc : added) {
+                if (npc.getPosition().distanceSquared(position) <= radiusSquared) {
+                    visible.add(npc);
+                    if (!playerInfoTracker.holds(player, npc)) {
+                        unsent.add(npc);
+                    }
+                }
+            }
+            if (visible.isEmpty()) {
+                continue;
+            }
+            PlayerInfoBatch playerInfo = PlayerInfoBatch.of(unsent);
+            playerInfoTracker.send(player, playerInfo);
+            Set<NPC> viewed = view(player);
+            for (NPC npc : visible) {
+                viewed.add(npc);
+                npc.addViewer(player);
+            }
+        }
+    }
+
+    /**
+     * Adds and removes a player as viewer of the NPCs around a position, usually where the player moved to.
+     * Safe to call from any thread.
+     * @param player The player
+     * @param position The position of the player
+     */
+    public void refreshView(@NotNull Player player, @NotNull Point position) {
+        ProximitySettings settings = AuriNPC.getInstance().getProximitySettings();
+        double enter = settings.getViewRadius();
+        double exit = enter + settings.getViewHysteresis();
+        double enterSquared = enter * enter;
+        double exitSquared = exit * exit;
+        Set<NPC> viewed = view(player);
+        forEachBucket(position, enter, bucket -> {
+            for (NPC npc : bucket) {
+                if (npc.getPosition().distanceSquared(position) <= enterSquared && viewed.add(npc)) {
+                    npc.addViewer(player);
+                }
+            }
+        });
+        viewed.removeIf(npc -> {
+            if (npc.getPosition().distanceSquared(position) <= exitSquared) {
+                return false;
+            }
+            npc.removeViewer(player);
+            return true;
+        });
+    }
+
+    /**
+     * Removes a player as viewer of every NPC of the instance, usually because they left it.
+     * @param player The player
+     */
+    void forgetPlayer(@NotNull Player player) {
+        Set<NPC> viewed = views.remove(player);
+        if (viewed != null) {
+            viewed.forEach(npc -> npc.removeViewer(player));
+        }
+    }
+
+    /**
+     * Wakes the NPCs within the wake radius of a point, usually a player that moved. Safe to call from any thread.
+     * @param position The point
+     */
+    public void wake(@NotNull Point position) {
+        if (dormant.isEmpty()) {
+            return;
+        }
+        ProximitySettings settings = AuriNPC.getInstance().getProximitySettings();
+        double radius = settings.getWakeRadius();
+        double radiusSquared = radius * radius;
+        forEachBucket(position, radius, bucket -> {
+            for (NPC npc : bucket) {
+                if (!dormant.contains(npc)) {
+                    continue;
+                }
+                double distance = npc.getPosition().distanceSquared(position);
+                if (distance <= radiusSquared && unpark(npc)) {
+                    npc.setTickInterval(settings.getTickInterval(distance));
+                    // Lets the next sweep park it again if the player walks away
+                    changes.add(new Change(npc, true));
+                }
+            }
+        });
+    }
+
+    void tick() {
+        Change change;
+        while ((change = changes.poll()) != null) {
+            if (!change.awake) {
+                proximities.remove(change.npc);
+            } else {
+                if (!proximities.containsKey(change.npc)) {
+                    proximities.put(change.npc, new Proximity());
+                }
+                awake.add(change.npc);
+            }
+        }
+        ProximitySettings settings = AuriNPC.getInstance().getProximitySettings();
+        if (++tick % settings.getSweepInterval() != 0) {
+            return;
+        }
+        long sweep = ++this.sweep;
+        double radius = settings.getWakeRadius();
+        double radiusSquared = radius * radius;
+        List<NPC> reached = this.reached;
+        for (Player player : npcs.getInstance().getPlayers()) {
+            Pos target = player.getPosition();
+            refreshView(player, target);
+            forEachBucket(target, radius, bucket -> {
+                for (NPC npc : bucket) {
+                    double distance = npc.getPosition().distanceSquared(target);
+                    if (distance > radiusSquared) {
+                        continue;
+                    }
+                    Proximity proximity = proximities.get(npc);
+                    if (proximity == null) {
+                        // Added since the changes were drained, the next sweep picks it up
+                        continue;
+                    }
+                    if (proximity.sweep != sweep) {
+                        proximity.sweep = sweep;
+                        proximity.nearestSquared = distance;
+                        reached.add(npc);
+                    } else if (distance < proximity.nearestSquared) {
+                        proximity.nearestSquared = distance;
+                    }
+                }
+            });
+        }
+        for (NPC npc : awake) {
+            Proximity proximity = proximities.get(npc);
+            if (proximity != null && proximity.sweep != sweep) {
+                park(npc);
+            }
+        }
+        for (NPC npc : reached) {
+            npc.setTickInterval(settings.getTickInterval(proximities.get(npc).nearestSquared));
+            unpark(npc);
+        }
+        awake.clear();
+        this.reached = awake;
+        this.awake = reached;
+    }
+
+    private void park(NPC npc) {
+        dormant.add(npc);
+        if (npc instanceof NavigationalNPC navigational) {
+            navigational.setDormant(true);
+        }
+    }
+
+    private boolean unpark(NPC npc) {
+        boolean removed = dormant.remove(npc);
+        // Cleared even if it was not in the set, so the sweep reaching the NPC undoes a park that raced a wake-up
+        if (npc instanceof NavigationalNPC navigational) {
+            navigational.setDormant(false);
+        }
+        return removed;
+    }
+
+    /**
+     * Gets whether an NPC is dormant because no player is close to it. Safe to call from any thread.
+     * @param npc The NPC
+     * @return Whether the NPC is dormant
+     */
+    boolean isDormant(@NotNull NPC npc) {
+        return dormant.contains(npc);
+    }
+
+    /**
+     * Gets the NPCs a player views.
+     * @param player The player
+     * @return A view of the NPCs the player views
+     */
+    public Collection<NPC> getViewedNPCs(@NotNull Player player) {
+        Set<NPC> viewed = views.get(player);
+        return viewed == null ? Set.of() : Collections.unmodifiableSet(viewed);
+    }
+
+    /**
+     * Gets the dormant NPCs of the instance.
+     * @return A view of the dormant NPCs
+     */
+    public Collection<NPC> getDormantNPCs() {
+        return Collections.unmodifiableSet(dormant);
+    }
+
+    private Set<NPC> view(Player player) {
+        return views.computeIfAbsent(player, key -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Gets whether an NPC updates on a tick, given its tick interval.
+     * @param entityId The entity id of the NPC, which offsets its updates
+     * @param tick The tick counter
+     * @param interval The tick interval of the NPC
+     * @return Whether the NPC updates on the tick
+     */
+    static boolean isDue(int entityId, long tick, int interval) {
+        return interval <= 1 || Math.floorMod(tick + entityId, interval) == 0;
+    }
+
+    private void forEachBucket(Point center, double radius, Consumer<NPC[]> action) {
+        int minX = InstanceNPCs.chunkCoordinate(center.x() - radius);
+        int maxX = InstanceNPCs.chunkCoordinate(center.x() + radius);
+        int minZ = InstanceNPCs.chunkCoordinate(center.z() - radius);
+        int maxZ = InstanceNPCs.chunkCoordinate(center.z() + radius);
+        for (int chunkX = minX; chunkX <= maxX; chunkX++) {
+            for (int chunkZ = minZ; chunkZ <= maxZ; chunkZ++) {
+                action.accept(npcs.getChunkBucket(chunkX, chunkZ));
+            }
+        }
+    }
+
+    private record Change(NPC npc, boolean awake) {
+    }
+
+    /**
+     * The distance to the closest player found for an NPC by a sweep.
+     */
+    private static final class Proximity {
+        private long sweep;
+        private double nearestSquared;
+    }
+}
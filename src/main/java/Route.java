@@ -0,0 +1,222 @@
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.coordinate.Vec;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A fixed route through waypoints that {@link NavigationalNPC}s patrol, such as the round of a guard.
+ * <p>
+ * The path of each leg between two waypoints is searched once, the first time an NPC walks it, and shared by
+ * every NPC on the route. A leg is searched again only after a block along its path changed, the next time
+ * an NPC walks it. Routes are created and dropped through the {@link RouteService}.
+ */
+public final class Route {
+    private static final double WAYPOINT_REACHED_SQUARED = 1.5 * 1.5;
+
+    private final Instance instance;
+    private final List<Vec> waypoints;
+    private final boolean looping;
+    private final Leg[] legs;
+    private volatile boolean discarded;
+
+    Route(@NotNull Instance instance, @NotNull List<? extends Point> waypoints, boolean looping) {
+        if (waypoints.size() < 2) {
+            throw new IllegalArgumentException("A route needs at least two waypoints");
+        }
+        this.instance = instance;
+        this.waypoints = waypoints.stream()
+            .map(waypoint -> new Vec(waypoint.blockX() + 0.5, waypoint.blockY(), waypoint.blockZ() + 0.5))
+            .toList();
+        this.looping = looping;
+        this.legs = new Leg[looping ? waypoints.size() : waypoints.size() - 1];
+        for (int i = 0; i < legs.length; i++) {
+            legs[i] = new Leg(this.waypoints.get(i), this.waypoints.get((i + 1) % waypoints.size()));
+        }
+    }
+
+    /**
+     * Gets the instance the route is in.
+     * @return The instance
+     */
+    public @NotNull Instance getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the waypoints of the route, as the centers of their blocks.
+     * @return The waypoints
+     */
+    public @NotNull List<Vec> getWaypoints() {
+        return waypoints;
+    }
+
+    /**
+     * Gets whether the route goes back from its last waypoint to its first one.
+     * @return Whether the route loops
+     */
+    public boolean isLooping() {
+        return looping;
+    }
+
+    /**
+     * Gets the number of legs of the route.
+     * @return The number of legs
+     */
+    public int getLegCount() {
+        return legs.length;
+    }
+
+    /**
+     * Gets whether the route was dropped from the {@link RouteService}. NPCs stop patrolling a dropped route
+     * once they reach the end of their current leg.
+     * @return Whether the route was dropped
+     */
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * Gets the path of a leg, starting to search it if it is missing or a block along it changed. Must be
+     * called on the tick thread of the instance.
+     * @param leg The index of the leg, which starts at the waypoint of the same index
+     * @return The latest path, which may be out of date, or null if the first one is still being searched
+     */
+    @Nullable NavigationPath getPath(int leg) {
+        return legs[leg].path();
+    }
+
+    /**
+     * Gets the leg starting at the waypoint closest to a position.
+     * @param position The position
+     * @return The index of the leg
+     */
+    int closestLeg(@NotNull Point position) {
+        int closest = 0;
+        double closestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < legs.length; i++) {
+            double distance = waypoints.get(i).distanceSquared(position);
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Gets whether a position is close enough to a waypoint to start walking the leg from it.
+     * @param leg The index of the leg
+     * @param position The position
+     * @return Whether the position is at the start of the leg
+     */
+    boolean isAtStart(int leg, @NotNull Point position) {
+        Vec start = waypoints.get(leg);
+        double dx = start.x() - position.x();
+        double dz = start.z() - position.z();
+        return dx * dx + dz * dz < WAYPOINT_REACHED_SQUARED && Math.abs(start.y() - position.y()) < 2;
+    }
+
+    /**
+     * Marks the legs passing by a block, so they are searched again the next time they are walked.
+     * @param block The position of the block
+     */
+    void invalidate(@NotNull Point block) {
+        for (Leg leg : legs) {
+            leg.invalidate(block.blockX(), block.blockY(), block.blockZ());
+        }
+    }
+
+    void discard() {
+        discarded = true;
+        for (Leg leg : legs) {
+            CompletableFuture<NavigationPath> pending = leg.pending;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+    }
+
+    private final class Leg {
+        private final Vec from;
+        private final Vec to;
+        private volatile NavigationPath path;
+        private volatile boolean dirty = true;
+        private volatile CompletableFuture<NavigationPath> pending;
+
+        private Leg(Vec from, Vec to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private NavigationPath path() {
+            CompletableFuture<NavigationPath> pending = this.pending;
+            if (dirty && !discarded && (pending == null || pending.isDone())) {
+                search();
+            }
+            return path;
+        }
+
+        private void search() {
+            dirty = false;
+            CompletableFuture<NavigationPath> search = AuriNPC.getInstance().getPathfinding().request(instance, from, to);
+            pending = search;
+            search.whenComplete((found, exception) -> {
+                if (exception != null) {
+                    if (discarded) {
+                        return;
+                    }
+                    // Most likely a full queue, so try again the next time the leg is walked
+                    dirty = true;
+                } else {
+                    path = found;
+                }
+            });
+        }
+
+        private void invalidate(int x, int y, int z) {
+            if (dirty) {
+                return;
+            }
+            CompletableFuture<NavigationPath> pending = this.pending;
+            NavigationPath path = this.path;
+            if (path == null || !pending.isDone()) {
+                // The search may have copied the block before it changed
+                dirty = true;
+                return;
+            }
+            if (path.isEmpty()) {
+                // No way was found, so any change the search could have seen may open one
+                dirty = isInSearch(x, y, z);
+                return;
+            }
+            if (isNear(from, x, y, z)) {
+                dirty = true;
+                return;
+            }
+            for (Vec point : path.points()) {
+                if (isNear(point, x, y, z)) {
+                    dirty = true;
+                    return;
+                }
+            }
+        }
+
+        private boolean isInSearch(int x, int y, int z) {
+            int margin = AuriNPC.getInstance().getPathfinding().getMargin() + 1;
+            if (y < Math.min(from.blockY(), to.blockY()) - margin || y > Math.max(from.blockY(), to.blockY()) + margin) {
+                return false;
+            }
+            return PathSnapshot.distanceSquaredToLine(x + 0.5, z + 0.5, from, to) <= (double) margin * margin;
+        }
+
+        private static boolean isNear(Vec point, int x, int y, int z) {
+            // The blocks an NPC stands on, walks through or brushes past when cutting by the point
+            int dy = y - point.blockY();
+            return Math.abs(x - point.blockX()) <= 1 && Math.abs(z - point.blockZ()) <= 1 && dy >= -1 && dy <= 2;
+        }
+    }
+}
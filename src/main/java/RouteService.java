@@ -0,0 +1,75 @@
+import net.minestom.server.coordinate.Point;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@link Route}s NPCs patrol, and marks their legs for a new search when blocks along them change.
+ */
+public class RouteService {
+    private final Set<Route> routes = ConcurrentHashMap.newKeySet();
+
+    RouteService() {
+    }
+
+    /**
+     * Creates a route. Its legs are searched the first time an NPC walks them.
+     * @param instance The instance of the route
+     * @param waypoints The waypoints of the route, at least two, each a block an NPC can stand in and within
+     * the {@link PathfindingService#getMaxDistance() search distance} of the next one
+     * @param looping Whether the route goes back from its last waypoint to its first one
+     * @return The route
+     */
+    public @NotNull Route create(@NotNull Instance instance, @NotNull List<? extends Point> waypoints, boolean looping) {
+        Route route = new Route(instance, waypoints, looping);
+        routes.add(route);
+        return route;
+    }
+
+    /**
+     * Drops a route. Its legs are no longer searched, and NPCs patrolling it stop at the end of the leg they
+     * are walking.
+     * @param route The route
+     */
+    public void remove(@NotNull Route route) {
+        if (routes.remove(route)) {
+            route.discard();
+        }
+    }
+
+    /**
+     * Marks the legs passing by a block, so they are searched again the next time an NPC walks them.
+     * @param instance The instance of the block
+     * @param block The position of the block
+     */
+    public void invalidate(@NotNull Instance instance, @NotNull Point block) {
+        for (Route route : routes) {
+            if (route.getInstance() == instance) {
+                route.invalidate(block);
+            }
+        }
+    }
+
+    void removeInstance(@NotNull Instance instance) {
+        routes.removeIf(route -> {
+            if (route.getInstance() != instance) {
+                return false;
+            }
+            route.discard();
+            return true;
+        });
+    }
+
+    /**
+     * Gets all routes.
+     * @return The routes
+     */
+    public @NotNull Collection<Route> getRoutes() {
+        return Collections.unmodifiableSet(routes);
+    }
+}
@@ -0,0 +1,63 @@
+import net.minestom.server.entity.PlayerSkin;
+import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * An immutable skin, shared by every NPC that wears it. Get one from the {@link SkinRegistry}.
+ * <p>
+ * Only the textures property is shared, not its encoded bytes. Minestom encodes a player info entry as a
+ * whole, so an NPC's entry, skin included, is encoded once into the NPC's cached packet and that buffer is
+ * sent to every player; it is encoded again only when the entry changes.
+ */
+public final class Skin {
+    /**
+     * The skin of an NPC that was given none. The client shows a default skin for it.
+     */
+    public static final Skin EMPTY = new Skin("", "");
+
+    private final String value;
+    private final String signature;
+    private final List<PlayerInfoUpdatePacket.Property> properties;
+
+    Skin(@NotNull String value, @Nullable String signature) {
+        this.value = value;
+        this.signature = signature;
+        // The client should be able to handle a blank skin property
+        this.properties = List.of(new PlayerInfoUpdatePacket.Property("textures", value, signature));
+    }
+
+    /**
+     * Gets the texture value of the skin.
+     * @return The skin value
+     */
+    public @NotNull String value() {
+        return value;
+    }
+
+    /**
+     * Gets the signature of the skin.
+     * @return The skin signature
+     */
+    public @Nullable String signature() {
+        return signature;
+    }
+
+    /**
+     * Gets the player info properties of the skin, ready to be put in a player info entry.
+     * @return The properties
+     */
+    public @NotNull List<PlayerInfoUpdatePacket.Property> properties() {
+        return properties;
+    }
+
+    /**
+     * Gets the skin as a Minestom {@link PlayerSkin}.
+     * @return The player skin
+     */
+    public @NotNull PlayerSkin toPlayerSkin() {
+        return new PlayerSkin(value, signature);
+    }
+}
@@ -0,0 +1,17 @@
+import net.minestom.server.entity.PlayerSkin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Looks up skins by reference, such as a username, a UUID or a file name.
+ */
+@FunctionalInterface
+public interface SkinProvider {
+    /**
+     * Fetches a skin. Implementations must not block the calling thread.
+     * @param reference The reference of the skin
+     * @return A future completed with the skin, or with null if there is no skin for the reference
+     */
+    @NotNull CompletableFuture<PlayerSkin> fetch(@NotNull String reference);
+}
@@ -0,0 +1,46 @@
+import net.minestom.server.entity.PlayerSkin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns skins, so every NPC wearing the same skin shares one {@link Skin} and its properties.
+ */
+public class SkinRegistry {
+    private final ConcurrentHashMap<Key, Skin> skins = new ConcurrentHashMap<>();
+
+    SkinRegistry() {
+        skins.put(new Key(Skin.EMPTY.value(), Skin.EMPTY.signature()), Skin.EMPTY);
+    }
+
+    /**
+     * Gets the shared skin for a texture value and signature.
+     * @param value The skin value
+     * @param signature The skin signature
+     * @return The shared skin
+     */
+    public @NotNull Skin get(@NotNull String value, @Nullable String signature) {
+        return skins.computeIfAbsent(new Key(value, signature), key -> new Skin(key.value, key.signature));
+    }
+
+    /**
+     * Gets the shared skin for a Minestom {@link PlayerSkin}.
+     * @param skin The player skin
+     * @return The shared skin
+     */
+    public @NotNull Skin get(@NotNull PlayerSkin skin) {
+        return get(skin.textures(), skin.signature());
+    }
+
+    /**
+     * Gets the number of distinct skins.
+     * @return The number of skins
+     */
+    public int size() {
+        return skins.size();
+    }
+
+    private record Key(String value, String signature) {
+    }
+}
@@ -0,0 +1,173 @@
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.entity.PlayerSkin;
+import net.minestom.server.instance.Instance;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves skins by reference in the background, so building an NPC never waits on a skin lookup.
+ * <p>
+ * Concurrent lookups of the same reference share one request to the {@link SkinProvider}, resolved skins are
+ * kept in memory, and, once a cache directory is set, written to disk so they survive restarts without
+ * asking the provider again. References that resolve to no skin are not remembered and are retried on the
+ * next lookup.
+ */
+public class SkinResolver {
+    private final SkinRegistry registry;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "aurinpc-skins");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentHashMap<String, Skin> resolved = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<Skin>> inFlight = new ConcurrentHashMap<>();
+    private volatile SkinProvider provider = new MojangSkinProvider(executor);
+    private volatile FileSkinProvider cache;
+
+    SkinResolver(@NotNull SkinRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Resolves a skin.
+     * @param reference The reference of the skin, such as a username or a UUID for the default provider
+     * @return A future completed with the shared skin, or with {@link Skin#EMPTY} if there is no skin for the reference
+     */
+    public @NotNull CompletableFuture<Skin> resolve(@NotNull String reference) {
+        Skin skin = resolved.get(reference);
+        if (skin != null) {
+            return CompletableFuture.completedFuture(skin);
+        }
+        CompletableFuture<Skin> future = new CompletableFuture<>();
+        CompletableFuture<Skin> existing = inFlight.putIfAbsent(reference, future);
+        if (existing != null) {
+            return existing;
+        }
+        load(reference).whenComplete((loaded, exception) -> {
+            if (exception == null && loaded != Skin.EMPTY) {
+                resolved.put(reference, loaded);
+            }
+            inFlight.remove(reference, future);
+            if (exception != null) {
+                future.completeExceptionally(exception);
+            } else {
+                future.complete(loaded);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Resolves a skin and puts it on an NPC on its instance's tick once it is ready. The NPC keeps its
+     * current skin until then.
+     * @param npc The NPC
+     * @param reference The reference of the skin
+     */
+    public void apply(@NotNull NPC npc, @NotNull String reference) {
+        resolve(reference).whenComplete((skin, exception) -> {
+            if (exception != null) {
+                MinecraftServer.getExceptionManager().handleException(exception);
+                return;
+            }
+            if (skin == Skin.EMPTY) {
+                return;
+            }
+            Runnable task = () -> {
+                if (!npc.isRemoved()) {
+                    npc.setSkin(skin);
+                }
+            };
+            Instance instance = npc.getInstance();
+            if (instance != null) {
+                instance.scheduler().scheduleNextTick(task);
+            } else {
+                MinecraftServer.getSchedulerManager().scheduleNextTick(task);
+            }
+        });
+    }
+
+    /**
+     * Gets the provider skins are looked up from when they are not cached.
+     * @return The skin provider
+     */
+    public @NotNull SkinProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Sets the provider skins are looked up from when they are not cached.
+     * @param provider The skin provider
+     */
+    public void setProvider(@NotNull SkinProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Gets the directory resolved skins are cached in.
+     * @return The cache directory, or null if skins are only cached in memory
+     */
+    public @Nullable Path getCacheDirectory() {
+        FileSkinProvider cache = this.cache;
+        return cache == null ? null : cache.getDirectory();
+    }
+
+    /**
+     * Sets the directory resolved skins are cached in.
+     * @param directory The cache directory, or null to only cache skins in memory
+     */
+    public void setCacheDirectory(@Nullable Path directory) {
+        this.cache = directory == null ? null : new FileSkinProvider(directory, executor);
+    }
+
+    private CompletableFuture<Skin> load(String reference) {
+        FileSkinProvider cache = this.cache;
+        SkinProvider provider = this.provider;
+        return CompletableFuture.supplyAsync(() -> readCache(cache, reference), executor)
+            .thenCompose(cached -> cached != null
+                ? CompletableFuture.completedFuture(cached)
+                : provider.fetch(reference).thenApplyAsync(fetched -> {
+                    writeCache(cache, reference, fetched);
+                    return fetched;
+                }, executor))
+            .thenApply(skin -> skin == null ? Skin.EMPTY : registry.get(skin));
+    }
+
+    private static PlayerSkin readCache(FileSkinProvider cache, String reference) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.read(reference);
+        } catch (RuntimeException e) {
+            // A broken cache file only costs a lookup
+            MinecraftServer.getExceptionManager().handleException(e);
+            return null;
+        }
+    }
+
+    private static void writeCache(FileSkinProvider cache, String reference, PlayerSkin skin) {
+        if (cache == null || skin == null) {
+            return;
+        }
+        try {
+            cache.write(reference, skin);
+        } catch (RuntimeException e) {
+            MinecraftServer.getExceptionManager().handleException(e);
+        }
+    }
+
+    /**
+     * Stops the lookup threads and cancels the lookups still in flight.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        inFlight.values().forEach(future -> future.cancel(false));
+        inFlight.clear();
+    }
+}
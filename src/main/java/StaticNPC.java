@@ -1,16 +1,14 @@
 import net.kyori.adventure.text.Component;
-import net.minestom.server.MinecraftServer;
 import net.minestom.server.coordinate.Pos;
 import net.minestom.server.entity.*;
 import net.minestom.server.event.Event;
 import net.minestom.server.event.EventNode;
 import net.minestom.server.instance.Instance;
 import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
 import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
@@ -18,58 +16,44 @@ import java.util.function.Consumer;
 /**
  * A static NPC that has no health and cannot move.
  */
-public class StaticNPC extends Entity implements NPC {
-    private String skinSignature;
-    private String skinValue;
+public class StaticNPC extends Entity implements LookingNPC {
     private boolean lookAtPlayers;
-    private boolean listed;
+    private volatile int tickInterval = 1;
     private long lookRangeSquared;
+    private float lookThreshold;
+    private int lookRate;
+    private LookMode lookMode;
 
-    private PlayerInfoUpdatePacket playerInfoUpdatePacket;
+    private final NPCPlayerInfo playerInfo;
 
     protected StaticNPC(
         @NotNull UUID uuid,
         @NotNull Instance instance,
         @NotNull Pos position,
         @NotNull Component customName,
-        @NotNull String skinSignature,
-        @NotNull String skinValue,
+        @NotNull Skin skin,
         boolean lookAtPlayers,
         boolean listed,
         long lookRange,
+        float lookThreshold,
+        int lookRate,
+        @NotNull LookMode lookMode,
         @NotNull Consumer<ClientInteractEntityPacket> interactListener
     ) {
         // Constructor for full initial customization
         super(EntityType.PLAYER, uuid);
-        this.setInstance(instance, position);
-        this.skinSignature = skinSignature;
-        this.skinValue = skinValue;
         this.lookAtPlayers = lookAtPlayers;
-        this.listed = listed;
-        this.lookRangeSquared = lookRange;
+        this.lookRangeSquared = lookRange * lookRange;
+        this.lookThreshold = lookThreshold;
+        this.lookRate = lookRate;
+        this.lookMode = lookMode;
         this.setCustomName(customName);
         this.setCustomNameVisible(true);
-        this.playerInfoUpdatePacket = new PlayerInfoUpdatePacket(
-            PlayerInfoUpdatePacket.Action.ADD_PLAYER,
-            new PlayerInfoUpdatePacket.Entry(
-                uuid,
-                customName.examinableName(),
-                List.of(
-                    new PlayerInfoUpdatePacket.Property("textures", skinValue, skinSignature) // The client should be able to handle a blank skin property
-                ),
-                this.listed,
-                0,
-                GameMode.CREATIVE,
-                customName,
-                null,
-                0
-            )
-        );
-        MinecraftServer.getPacketListenerManager().setPlayListener(ClientInteractEntityPacket.class, (packet, player) -> {
-            if (packet.targetId() == this.getEntityId()) {
-                interactListener.accept(packet);
-            }
-        });
+        // Viewers are picked by distance in ProximityTracker
+        this.setAutoViewable(false);
+        this.playerInfo = new NPCPlayerInfo(this, this::getCustomName, skin, listed);
+        AuriNPC.getInstance().getInteractDispatcher().register(getEntityId(), interactListener);
+        this.setInstance(instance, position);
     }
 
     public static class Builder {
@@ -80,11 +64,14 @@ public class StaticNPC extends Entity implements NPC {
 
         // Optional parameters
         private Component customName = Component.text("NPC");
-        private String skinSignature = "";
-        private String skinValue = "";
+        private Skin skin = Skin.EMPTY;
+        private String skinReference;
         private boolean lookAtPlayers = true;
         private boolean listed = true;
         private long lookRange = 10;
+        private float lookThreshold = 1;
+        private int lookRate = 20;
+        private LookMode lookMode = LookMode.CLOSEST;
         private Consumer<ClientInteractEntityPacket> interactListener = packet -> {};
 
         /**
@@ -104,7 +91,11 @@ public class StaticNPC extends Entity implements NPC {
          * @return The NPC
          */
         public StaticNPC build() {
-            return new StaticNPC(uuid, instance, position, customName, skinSignature, skinValue, lookAtPlayers, listed, lookRange, interactListener);
+            StaticNPC npc = new StaticNPC(uuid, instance, position, customName, skin, lookAtPlayers, listed, lookRange, lookThreshold, lookRate, lookMode, interactListener);
+            if (skinReference != null) {
+                AuriNPC.getInstance().getSkinResolver().apply(npc, skinReference);
+            }
+            return npc;
         }
 
         /**
@@ -134,8 +125,7 @@ public class StaticNPC extends Entity implements NPC {
          * @return The builder
          */
         public StaticNPC.Builder skin(String skinValue, String skinSignature) {
-            this.skinValue = skinValue;
-            this.skinSignature = skinSignature;
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skinValue, skinSignature);
             return this;
         }
 
@@ -145,8 +135,28 @@ public class StaticNPC extends Entity implements NPC {
          * @return The builder
          */
         public StaticNPC.Builder skin(PlayerSkin skin) {
-            this.skinValue = skin.textures();
-            this.skinSignature = skin.signature();
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skin);
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC.
+         * @param skin The shared skin
+         * @return The builder
+         */
+        public StaticNPC.Builder skin(@NotNull Skin skin) {
+            this.skin = skin;
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC from a reference, such as a username, resolved in the background.
+         * The NPC wears the skin set with the other skin methods until the reference is resolved.
+         * @param reference The skin reference
+         * @return The builder
+         */
+        public StaticNPC.Builder skinFrom(@NotNull String reference) {
+            this.skinReference = reference;
             return this;
         }
 
@@ -179,36 +189,52 @@ public class StaticNPC extends Entity implements NPC {
             this.lookRange = lookRange;
             return this;
         }
+
+        /**
+         * Sets how far the NPC's head has to turn, in degrees, before a new rotation is sent to viewers.
+         * @param lookThreshold The look threshold
+         * @return The builder
+         */
+        public StaticNPC.Builder lookThreshold(float lookThreshold) {
+            this.lookThreshold = lookThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how many times per second at most the NPC's rotation is sent to viewers.
+         * @param lookRate The maximum look updates per second
+         * @return The builder
+         */
+        public StaticNPC.Builder lookRate(int lookRate) {
+            this.lookRate = lookRate;
+            return this;
+        }
+
+        /**
+         * Sets whether the NPC faces the closest player, or every viewer sees it facing them.
+         * @param lookMode The look mode
+         * @return The builder
+         */
+        public StaticNPC.Builder lookMode(@NotNull LookMode lookMode) {
+            this.lookMode = lookMode;
+            return this;
+        }
     }
 
     @Override
     public void tick(long time) {
-        if (lookAtPlayers) {
-            Player closest = null;
-            double closestDistance = Double.MAX_VALUE;
-            for (Entity nearbyEntity : getInstance().getNearbyEntities(this.position, this.lookRangeSquared)) {
-                if (nearbyEntity instanceof Player) {
-                    double distance = this.position.distance(nearbyEntity.getPosition());
-                    if (distance < closestDistance) {
-                        closest = (Player) nearbyEntity;
-                        closestDistance = distance;
-                    }
-                }
-            }
-            if (closest != null) {
-                this.lookAt(closest.getPosition());
-            }
-        }
+        // Static NPCs skip entity physics, and looking at players is done for the whole instance by LookAtEngine
     }
 
     /**
      * Sets the instance of the NPC.
      * @param instance The instance to move the NPC to
+     * @param spawnPosition The position to place the NPC at
      * @return A future that completes when the NPC has been moved
      */
     @Override
-    public CompletableFuture<Void> setInstance(@NotNull Instance instance) {
-        CompletableFuture<Void> future = super.setInstance(instance);
+    public CompletableFuture<Void> setInstance(@NotNull Instance instance, @NotNull Pos spawnPosition) {
+        CompletableFuture<Void> future = super.setInstance(instance, spawnPosition);
         future.thenRun(() -> AuriNPC.getInstance().addNPC(this));
         return future;
     }
@@ -220,65 +246,62 @@ public class StaticNPC extends Entity implements NPC {
     public void remove() {
         super.remove();
         AuriNPC.getInstance().removeNPC(this);
+        AuriNPC.getInstance().getInteractDispatcher().unregister(getEntityId());
+    }
+
+    /**
+     * Gets the number of ticks between two updates of the NPC, which grows with the distance to its closest player.
+     * @return The tick interval
+     */
+    public int getTickInterval() {
+        return tickInterval;
+    }
+
+    /**
+     * Sets the number of ticks between two updates of the NPC. Called by AuriNPC as players come and go.
+     * @param tickInterval The tick interval
+     */
+    public void setTickInterval(int tickInterval) {
+        this.tickInterval = tickInterval;
     }
 
     public PlayerInfoUpdatePacket getPlayerInfoUpdatePacket() {
-        return playerInfoUpdatePacket;
+        return playerInfo.getPacket();
     }
 
     public void remakeInfoUpdatePacket() {
-        this.playerInfoUpdatePacket = new PlayerInfoUpdatePacket(
-            PlayerInfoUpdatePacket.Action.ADD_PLAYER,
-            new PlayerInfoUpdatePacket.Entry(
-                getUuid(),
-                Objects.requireNonNull(getCustomName()).toString(),
-                List.of(
-                        new PlayerInfoUpdatePacket.Property("textures", skinValue, skinSignature) // The client should be able to handle a blank skin property
-                ),
-                this.listed,
-                0,
-                GameMode.CREATIVE,
-                getCustomName(),
-                null,
-                0
-            )
-        );
-        getInstance().getPlayers().forEach(player -> player.sendPacket(playerInfoUpdatePacket));
+        playerInfo.refresh();
     }
 
     /**
-     * Gets the skin signature of the NPC.
-     * @return The skin signature
+     * Gets the player info packet of the NPC, encoded once and reused for every player it is sent to.
+     * @return The cached player info packet
      */
-    public String getSkinSignature() {
-        return skinSignature;
+    public SendablePacket getCachedPlayerInfoUpdatePacket() {
+        return playerInfo.getCachedPacket();
     }
 
-    /**
-     * Gets the skin value of the NPC.
-     * @return The skin value
-     */
-    public String getSkinValue() {
-        return skinValue;
+    @Override
+    public void updateNewViewer(@NotNull Player player) {
+        // The client needs the player info entry before it can spawn a player entity
+        playerInfo.sendTo(player);
+        super.updateNewViewer(player);
     }
 
     /**
-     * Sets the skin of the NPC.
-     * @param skinValue The skin value
-     * @param skinSignature The skin signature
+     * Gets the shared skin of the NPC.
+     * @return The skin
      */
-    public void setSkin(@NotNull String skinValue, @NotNull String skinSignature) {
-        this.skinValue = skinValue;
-        this.skinSignature = skinSignature;
-        remakeInfoUpdatePacket();
+    public Skin getSkin() {
+        return playerInfo.getSkin();
     }
 
     /**
      * Sets the skin of the NPC.
-     * @param skin The skin
+     * @param skin The shared skin
      */
-    public void setSkin(PlayerSkin skin) {
-        setSkin(skin.textures(), skin.signature());
+    public void setSkin(@NotNull Skin skin) {
+        playerInfo.setSkin(skin);
     }
 
     /**
@@ -302,7 +325,7 @@ public class StaticNPC extends Entity implements NPC {
      * @return Whether the NPC is listed
      */
     public boolean isListed() {
-        return listed;
+        return playerInfo.isListed();
     }
 
     /**
@@ -310,8 +333,7 @@ public class StaticNPC extends Entity implements NPC {
      * @param listed Whether the NPC is listed
      */
     public void setListed(boolean listed) {
-        this.listed = listed;
-        remakeInfoUpdatePacket();
+        playerInfo.setListed(listed);
     }
 
     /**
@@ -336,5 +358,54 @@ public class StaticNPC extends Entity implements NPC {
      */
     public void setLookRange(long lookRange) {
         this.lookRangeSquared = lookRange * lookRange;
+        AuriNPC.getInstance().getNPCs().lookRangeChanged(this);
+    }
+
+    /**
+     * Gets how far the NPC's head has to turn, in degrees, before a new rotation is sent to viewers.
+     * @return The look threshold
+     */
+    public float getLookThreshold() {
+        return lookThreshold;
+    }
+
+    /**
+     * Sets how far the NPC's head has to turn, in degrees, before a new rotation is sent to viewers.
+     * @param lookThreshold The look threshold
+     */
+    public void setLookThreshold(float lookThreshold) {
+        this.lookThreshold = lookThreshold;
+    }
+
+    /**
+     * Gets how many times per second at most the NPC's rotation is sent to viewers.
+     * @return The maximum look updates per second
+     */
+    public int getLookRate() {
+        return lookRate;
+    }
+
+    /**
+     * Sets how many times per second at most the NPC's rotation is sent to viewers.
+     * @param lookRate The maximum look updates per second
+     */
+    public void setLookRate(int lookRate) {
+        this.lookRate = lookRate;
+    }
+
+    /**
+     * Gets whether the NPC faces the closest player, or every viewer sees it facing them.
+     * @return The look mode
+     */
+    public LookMode getLookMode() {
+        return lookMode;
+    }
+
+    /**
+     * Sets whether the NPC faces the closest player, or every viewer sees it facing them.
+     * @param lookMode The look mode
+     */
+    public void setLookMode(@NotNull LookMode lookMode) {
+        this.lookMode = lookMode;
     }
 }
\ No newline at end of file
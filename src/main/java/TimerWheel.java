@@ -0,0 +1,179 @@
+import net.minestom.server.MinecraftServer;
+import net.minestom.server.timer.Scheduler;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Runs delayed NPC actions, such as respawns, in the tick group of the instance the wheel belongs to.
+ * <p>
+ * Timers are kept in a hierarchical timing wheel of four levels of 64 slots, each slot a linked list, so
+ * scheduling, cancelling and expiring a timer are constant time and a tick only touches the slot that is
+ * due. Timers can be scheduled and cancelled from any thread: new timers go through a queue that the tick
+ * drains, and cancelled timers are dropped when their slot comes up. No thread is used besides the one of the
+ * tick group; tasks that change entities are handed to the scheduler of the entity once due.
+ */
+public class TimerWheel {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+    private final ConcurrentLinkedQueue<Timer> incoming = new ConcurrentLinkedQueue<>();
+    private long now;
+
+    TimerWheel() {
+    }
+
+    /**
+     * Schedules a task.
+     * @param task The task, run by the instance's tick group
+     * @param delayTicks The number of ticks to wait, at least one
+     * @return The timer, which can be cancelled
+     */
+    public @NotNull Timer schedule(@NotNull Runnable task, long delayTicks) {
+        Timer timer = new Timer(task, Math.max(1, delayTicks));
+        incoming.add(timer);
+        return timer;
+    }
+
+    /**
+     * Schedules a task that changes entity state, so it must not run on the tick group's thread. The wheel
+     * counts the delay down, then hands the task to a Minestom scheduler, such as the one of the entity, which
+     * runs it on its next tick. Cancelling the timer also drops a task that was handed over but has not run.
+     * @param task The task, run by the scheduler
+     * @param delayTicks The number of ticks to wait, at least one
+     * @param scheduler The scheduler the task is handed to once due
+     * @return The timer, which can be cancelled
+     */
+    public @NotNull Timer schedule(@NotNull Runnable task, long delayTicks, @NotNull Scheduler scheduler) {
+        Timer timer = new Timer(null, Math.max(1, delayTicks));
+        timer.task = () -> scheduler.scheduleNextTick(() -> {
+            if (!timer.cancelled) {
+                task.run();
+            }
+        });
+        incoming.add(timer);
+        return timer;
+    }
+
+    /**
+     * Schedules a task, rounding its delay up to whole ticks.
+     * @param task The task, run by the instance's tick group
+     * @param delay The time to wait
+     * @return The timer, which can be cancelled
+     */
+    public @NotNull Timer schedule(@NotNull Runnable task, @NotNull Duration delay) {
+        return schedule(task, ticks(delay.toMillis()));
+    }
+
+    /**
+     * Gets the number of ticks covering a delay.
+     * @param millis The delay in milliseconds
+     * @return The delay in ticks, rounded up
+     */
+    static long ticks(long millis) {
+        return (millis + MinecraftServer.TICK_MS - 1) / MinecraftServer.TICK_MS;
+    }
+
+    void tick() {
+        Timer timer;
+        while ((timer = incoming.poll()) != null) {
+            timer.deadline = now + timer.deadline;
+            insert(timer);
+        }
+        long tick = ++now;
+        // Once a level wrapped around, move the timers of the next slot of the level above it down, highest
+        // level first so timers cascading several levels land in slots that are still to be cascaded
+        int wrapped = 0;
+        while (wrapped < LEVELS - 1 && (tick & ((1L << (SLOT_BITS * (wrapped + 1))) - 1)) == 0) {
+            wrapped++;
+        }
+        for (int level = wrapped; level > 0; level--) {
+            int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+            Timer cascaded = slots[level][slot];
+            slots[level][slot] = null;
+            while (cascaded != null) {
+                Timer next = cascaded.next;
+                if (!cascaded.cancelled) {
+                    insert(cascaded);
+                }
+                cascaded = next;
+            }
+        }
+        int slot = (int) tick & SLOT_MASK;
+        Timer due = slots[0][slot];
+        slots[0][slot] = null;
+        while (due != null) {
+            Timer next = due.next;
+            due.next = null;
+            due.run();
+            due = next;
+        }
+    }
+
+    private void insert(Timer timer) {
+        long deadline = timer.deadline;
+        long difference = deadline ^ now;
+        int level = 0;
+        while (level < LEVELS - 1 && (difference >>> (SLOT_BITS * (level + 1))) != 0) {
+            level++;
+        }
+        int slot;
+        if ((difference >>> (SLOT_BITS * LEVELS)) != 0) {
+            // Beyond the wheel: park in the next top slot and look again when it cascades
+            slot = (int) ((now >>> (SLOT_BITS * level)) + 1) & SLOT_MASK;
+        } else {
+            slot = (int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+        }
+        timer.next = slots[level][slot];
+        slots[level][slot] = timer;
+    }
+
+    /**
+     * A task scheduled on a {@link TimerWheel}.
+     */
+    public static final class Timer {
+        private volatile Runnable task;
+        private volatile boolean cancelled;
+        // The delay until the timer is drained, then the tick it is due at
+        private long deadline;
+        private Timer next;
+
+        private Timer(Runnable task, long delay) {
+            this.task = task;
+            this.deadline = delay;
+        }
+
+        /**
+         * Cancels the timer, if it has not run yet.
+         */
+        public void cancel() {
+            cancelled = true;
+            task = null;
+        }
+
+        /**
+         * Gets whether the timer was cancelled.
+         * @return Whether the timer was cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void run() {
+            Runnable task = this.task;
+            this.task = null;
+            if (cancelled || task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                MinecraftServer.getExceptionManager().handleException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+import net.kyori.adventure.text.Component;
+import net.minestom.server.coordinate.Pos;
+import net.minestom.server.entity.EntityType;
+import net.minestom.server.entity.Metadata;
+import net.minestom.server.entity.Player;
+import net.minestom.server.entity.PlayerSkin;
+import net.minestom.server.instance.Instance;
+import net.minestom.server.network.packet.client.play.ClientInteractEntityPacket;
+import net.minestom.server.network.packet.server.CachedPacket;
+import net.minestom.server.network.packet.server.SendablePacket;
+import net.minestom.server.network.packet.server.play.DestroyEntitiesPacket;
+import net.minestom.server.network.packet.server.play.EntityMetaDataPacket;
+import net.minestom.server.network.packet.server.play.PlayerInfoUpdatePacket;
+import net.minestom.server.network.packet.server.play.SpawnEntityPacket;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A static NPC that only exists as packets, for crowds too large to back every NPC with a Minestom entity.
+ * <p>
+ * The NPC is not ticked and not known to its instance: it is a few fields and the cached spawn, metadata
+ * and player info packets sent to its viewers, which AuriNPC picks by distance like for any other NPC. Its
+ * entity id is taken from a range counting down from {@link Integer#MAX_VALUE}, away from the ids Minestom
+ * gives its entities, and interactions with it are routed through the {@link InteractDispatcher}.
+ */
+public class VirtualNPC implements NPC {
+    private static final AtomicInteger NEXT_ENTITY_ID = new AtomicInteger(Integer.MAX_VALUE);
+    private static final int CUSTOM_NAME_INDEX = 2;
+    private static final int CUSTOM_NAME_VISIBLE_INDEX = 3;
+
+    private final UUID uuid;
+    private final int entityId = NEXT_ENTITY_ID.getAndDecrement();
+    private final Pos position;
+    private final Component customName;
+    private final Set<Player> viewers = ConcurrentHashMap.newKeySet();
+    private volatile Instance instance;
+    private volatile int tickInterval = 1;
+    private volatile boolean removed;
+
+    private final NPCPlayerInfo playerInfo;
+    private final CachedPacket spawnPacket = new CachedPacket(() -> new SpawnEntityPacket(
+        entityId, getUuid(), EntityType.PLAYER.id(), getPosition(), getPosition().yaw(), 0, (short) 0, (short) 0, (short) 0
+    ));
+    private final CachedPacket metadataPacket = new CachedPacket(() -> new EntityMetaDataPacket(entityId, Map.of(
+        CUSTOM_NAME_INDEX, Metadata.OptChat(getCustomName()),
+        CUSTOM_NAME_VISIBLE_INDEX, Metadata.Boolean(true)
+    )));
+    private final CachedPacket destroyPacket = new CachedPacket(() -> new DestroyEntitiesPacket(entityId));
+
+    protected VirtualNPC(
+        @NotNull UUID uuid,
+        @NotNull Instance instance,
+        @NotNull Pos position,
+        @NotNull Component customName,
+        @NotNull Skin skin,
+        boolean listed,
+        @NotNull Consumer<ClientInteractEntityPacket> interactListener
+    ) {
+        this.uuid = uuid;
+        this.position = position;
+        this.customName = customName;
+        this.playerInfo = new NPCPlayerInfo(this, this::getCustomName, skin, listed);
+        AuriNPC.getInstance().getInteractDispatcher().register(entityId, interactListener);
+        this.setInstance(instance);
+    }
+
+    public static class Builder {
+        // Required parameters
+        private final UUID uuid;
+        private final Instance instance;
+        private final Pos position;
+
+        // Optional parameters
+        private Component customName = Component.text("NPC");
+        private Skin skin = Skin.EMPTY;
+        private String skinReference;
+        private boolean listed = true;
+        private Consumer<ClientInteractEntityPacket> interactListener = packet -> {};
+
+        /**
+         * Creates a new {@link VirtualNPC} builder.
+         * @param uuid The UUID of the NPC
+         * @param instance The instance the NPC will be in
+         * @param position The position of the NPC
+         */
+        public Builder(@NotNull UUID uuid, @NotNull Instance instance, @NotNull Pos position) {
+            this.uuid = uuid;
+            this.position = position;
+            this.instance = instance;
+        }
+
+        /**
+         * Builds the NPC with the chosen options.
+         * @return The NPC
+         */
+        public VirtualNPC build() {
+            VirtualNPC npc = new VirtualNPC(uuid, instance, position, customName, skin, listed, interactListener);
+            if (skinReference != null) {
+                AuriNPC.getInstance().getSkinResolver().apply(npc, skinReference);
+            }
+            return npc;
+        }
+
+        /**
+         * Sets the interact listener of the NPC.
+         * @param interactListener The interact listener
+         * @return The builder
+         */
+        public VirtualNPC.Builder onInteract(Consumer<ClientInteractEntityPacket> interactListener) {
+            this.interactListener = interactListener;
+            return this;
+        }
+
+        /**
+         * Sets the custom name of the NPC.
+         * @param customName The custom name
+         * @return The builder
+         */
+        public VirtualNPC.Builder customName(Component customName) {
+            this.customName = customName;
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC.
+         * @param skinValue The skin value
+         * @param skinSignature The skin signature
+         * @return The builder
+         */
+        public VirtualNPC.Builder skin(String skinValue, String skinSignature) {
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skinValue, skinSignature);
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC.
+         * @param skin The skin
+         * @return The builder
+         */
+        public VirtualNPC.Builder skin(PlayerSkin skin) {
+            this.skin = AuriNPC.getInstance().getSkinRegistry().get(skin);
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC.
+         * @param skin The shared skin
+         * @return The builder
+         */
+        public VirtualNPC.Builder skin(@NotNull Skin skin) {
+            this.skin = skin;
+            return this;
+        }
+
+        /**
+         * Sets the skin of the NPC from a reference, such as a username, resolved in the background.
+         * The NPC wears the skin set with the other skin methods until the reference is resolved.
+         * @param reference The skin reference
+         * @return The builder
+         */
+        public VirtualNPC.Builder skinFrom(@NotNull String reference) {
+            this.skinReference = reference;
+            return this;
+        }
+
+        /**
+         * Sets whether the NPC is listed in the tab list.
+         * @param listed Whether the NPC is listed
+         * @return The builder
+         */
+        public VirtualNPC.Builder listed(boolean listed) {
+            this.listed = listed;
+            return this;
+        }
+    }
+
+    /**
+     * Moves the NPC to another instance.
+     * @param instance The instance to move the NPC to
+     * @return A completed future, as a virtual NPC needs no chunk
+     */
+    public CompletableFuture<Void> setInstance(@NotNull Instance instance) {
+        this.instance = instance;
+        AuriNPC.getInstance().addNPC(this);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Removes the NPC from every viewer and from AuriNPC, for good.
+     */
+    public void remove() {
+        if (removed) {
+            return;
+        }
+        removed = true;
+        AuriNPC.getInstance().removeNPC(this);
+        AuriNPC.getInstance().getInteractDispatcher().unregister(entityId);
+        viewers.forEach(this::removeViewer);
+    }
+
+    @Override
+    public boolean addViewer(@NotNull Player player) {
+        if (removed || !viewers.add(player)) {
+            return false;
+        }
+        // The client needs the player info entry before it can spawn a player entity
+        playerInfo.sendTo(player);
+        player.sendPacket(spawnPacket);
+        player.sendPacket(metadataPacket);
+        return true;
+    }
+
+    @Override
+    public boolean removeViewer(@NotNull Player player) {
+        if (!viewers.remove(player)) {
+            return false;
+        }
+        player.sendPacket(destroyPacket);
+        return true;
+    }
+
+    /**
+     * Gets the players currently viewing the NPC.
+     * @return A snapshot of the viewers
+     */
+    public Set<Player> getViewers() {
+        return Set.copyOf(viewers);
+    }
+
+    public PlayerInfoUpdatePacket getPlayerInfoUpdatePacket() {
+        return playerInfo.getPacket();
+    }
+
+    /**
+     * Gets the player info packet of the NPC, encoded once and reused for every player it is sent to.
+     * @return The cached player info packet
+     */
+    public SendablePacket getCachedPlayerInfoUpdatePacket() {
+        return playerInfo.getCachedPacket();
+    }
+
+    public void remakeInfoUpdatePacket() {
+        playerInfo.refresh();
+    }
+
+    /**
+     * Gets the entity id reserved for the NPC.
+     * @return The entity id
+     */
+    public int getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Gets the custom name of the NPC.
+     * @return The custom name
+     */
+    public Component getCustomName() {
+        return customName;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public Pos getPosition() {
+        return position;
+    }
+
+    public Instance getInstance() {
+        return instance;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * Gets the number of ticks between two updates of the NPC, which grows with the distance to its closest player.
+     * @return The tick interval
+     */
+    public int getTickInterval() {
+        return tickInterval;
+    }
+
+    /**
+     * Sets the number of ticks between two updates of the NPC. Called by AuriNPC as players come and go.
+     * @param tickInterval The tick interval
+     */
+    public void setTickInterval(int tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
+    /**
+     * Gets the shared skin of the NPC.
+     * @return The skin
+     */
+    public Skin getSkin() {
+        return playerInfo.getSkin();
+    }
+
+    /**
+     * Sets the skin of the NPC.
+     * @param skin The shared skin
+     */
+    public void setSkin(@NotNull Skin skin) {
+        playerInfo.setSkin(skin);
+    }
+
+    /**
+     * Gets whether the NPC is listed in the tab list.
+     * @return Whether the NPC is listed
+     */
+    public boolean isListed() {
+        return playerInfo.isListed();
+    }
+
+    /**
+     * Sets whether the NPC is listed in the tab list.
+     * @param listed Whether the NPC is listed
+     */
+    public void setListed(boolean listed) {
+        playerInfo.setListed(listed);
+    }
+}